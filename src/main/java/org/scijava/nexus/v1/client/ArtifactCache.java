@@ -0,0 +1,291 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.scijava.nexus.v1.client.domain.Checksum;
+
+/**
+ * Local store of downloaded assets, addressed by their checksum, so that an
+ * asset already fetched once is linked into the download directory instead
+ * of being transferred again.
+ *
+ * Files are kept under {@code <algorithm>/<first two digits>/<digest>},
+ * keyed by the asset's sha256 or, failing that, its sha1. An entry is only
+ * added once the download has been verified against that digest. Hits are
+ * hard linked into place, or copied when the download directory is on
+ * another file system; a hard linked file shares its contents with the cache
+ * and must not be modified in place.
+ *
+ * The cache is bounded in size: when it grows beyond its limit, the least
+ * recently used entries are evicted. The last use of an entry is recorded in
+ * a {@code .<digest>.used} file next to it, and the total size of the cache
+ * in its {@code .lock} file. Entries are moved in, and evicted, under an
+ * exclusive lock on that file, so several JVMs on the same host can share
+ * the cache. Files are linked or copied outside the lock.
+ *
+ * @author agent
+ */
+class ArtifactCache {
+
+	/**
+	 * One lock object per cache directory and JVM: file locks are held on
+	 * behalf of the whole JVM, so threads must also exclude each other.
+	 */
+	private static final ConcurrentHashMap< Path, Object > MONITORS = new ConcurrentHashMap<>();
+
+	private static final String LOCK = ".lock";
+	private static final ChecksumAlgorithm[] KEYS = { ChecksumAlgorithm.SHA256, ChecksumAlgorithm.SHA1 };
+
+	private final Path root;
+	private final long maxSize;
+	private final Object monitor;
+
+	/**
+	 *
+	 * @param directory
+	 *            - the cache directory, created on first use
+	 * @param maxSize
+	 *            - size in bytes beyond which entries are evicted
+	 */
+	ArtifactCache( String directory, long maxSize ) {
+		root = Paths.get( directory ).toAbsolutePath().normalize();
+		this.maxSize = maxSize;
+		monitor = MONITORS.computeIfAbsent( root, dir -> new Object() );
+	}
+
+	/**
+	 * The digest a cached asset is stored under.
+	 *
+	 * @return the key, or null if the asset cannot be cached because its
+	 *         checksum is unknown
+	 */
+	static Key key( Checksum checksum ) {
+		for ( ChecksumAlgorithm algorithm : KEYS ) {
+			String digest = algorithm.of( checksum );
+			// the digest becomes a file name, so only accept what it should be
+			if ( digest != null && digest.matches( "[0-9a-fA-F]{8,}" ) ) return new Key( algorithm, digest );
+		}
+		return null;
+	}
+
+	/**
+	 * Link or copy a cached asset into place.
+	 *
+	 * @param target
+	 *            - the destination file, replaced if it exists
+	 * @return true if the asset was cached, false if it has to be downloaded
+	 */
+	boolean copyTo( Key key, Path target ) throws IOException {
+		Path entry = entry( key );
+		if ( !Files.isRegularFile( entry ) ) return false;
+		// an entry evicted meanwhile stays readable through a link or an open
+		// copy, so this needs no lock
+		Path tmp = target.resolveSibling( "." + target.getFileName() + "." + UUID.randomUUID() + ".tmp" );
+		try {
+			link( entry, tmp );
+			Downloader.moveInto( tmp, target );
+		} catch ( NoSuchFileException e ) {
+			if ( !Files.exists( entry ) ) return false;
+			throw e;
+		} finally {
+			Files.deleteIfExists( tmp );
+		}
+		synchronized ( monitor ) {
+			FileChannel lock = lock();
+			try {
+				if ( Files.exists( entry ) ) used( entry );
+			} finally {
+				lock.close();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Add a verified download to the cache, then evict the least recently
+	 * used entries if the cache has grown beyond its limit.
+	 *
+	 * @param file
+	 *            - the downloaded file, whose digest is the key
+	 */
+	void add( Key key, Path file ) throws IOException {
+		Path entry = entry( key );
+		if ( Files.exists( entry ) ) return;
+		Files.createDirectories( entry.getParent() );
+		// linked or copied before locking, which is only needed to move it in
+		Path tmp = entry.resolveSibling( "." + entry.getFileName() + "." + UUID.randomUUID() + ".tmp" );
+		try {
+			link( file, tmp );
+			synchronized ( monitor ) {
+				try (FileChannel lock = lock()) {
+					if ( Files.exists( entry ) ) return;
+					Downloader.moveInto( tmp, entry );
+					used( entry );
+					// the running total is kept in the lock file, so that it
+					// counts the entries added by every JVM
+					long size = size( lock );
+					size = ( size < 0 ) ? scan() : size + Files.size( entry );
+					if ( size > maxSize ) size = evict();
+					size( lock, size );
+				}
+			}
+		} finally {
+			Files.deleteIfExists( tmp );
+		}
+	}
+
+	private Path entry( Key key ) {
+		String digest = key.digest.toLowerCase();
+		return root.resolve( key.algorithm.name().toLowerCase() ).resolve( digest.substring( 0, 2 ) ).resolve( digest );
+	}
+
+	/**
+	 * @return the cache's lock file, exclusively locked until it is closed
+	 */
+	private FileChannel lock() throws IOException {
+		Files.createDirectories( root );
+		FileChannel channel = FileChannel.open( root.resolve( LOCK ), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+		try {
+			channel.lock();
+			return channel;
+		} catch ( IOException | RuntimeException e ) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the total size of the entries recorded in the lock file, or -1
+	 *         if not recorded yet
+	 */
+	private static long size( FileChannel lock ) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate( Long.BYTES );
+		return ( lock.read( buffer, 0 ) == Long.BYTES ) ? buffer.getLong( 0 ) : -1;
+	}
+
+	private static void size( FileChannel lock, long size ) throws IOException {
+		lock.write( ByteBuffer.allocate( Long.BYTES ).putLong( 0, size ), 0 );
+	}
+
+	/**
+	 * Record the use of an entry. Its own modification time is left alone, as
+	 * it is shared with the files linked to it.
+	 */
+	private static void used( Path entry ) throws IOException {
+		Path used = usedRecord( entry );
+		try {
+			Files.setLastModifiedTime( used, FileTime.fromMillis( System.currentTimeMillis() ) );
+		} catch ( NoSuchFileException e ) {
+			Files.createFile( used );
+		}
+	}
+
+	/**
+	 * @return the file whose modification time is the last use of the entry
+	 */
+	private static Path usedRecord( Path entry ) {
+		return entry.resolveSibling( "." + entry.getFileName() + ".used" );
+	}
+
+	private static void link( Path source, Path link ) throws IOException {
+		try {
+			Files.createLink( link, source );
+		} catch ( IOException | UnsupportedOperationException e ) {
+			// another file system, or no hard links on this one
+			Files.copy( source, link );
+		}
+	}
+
+	private List< Path > entries() throws IOException {
+		List< Path > entries = new ArrayList<>();
+		try (Stream< Path > files = Files.walk( root )) {
+			files.filter( Files::isRegularFile )
+					.filter( file -> !file.getFileName().toString().startsWith( "." ) )
+					.forEach( entries::add );
+		}
+		return entries;
+	}
+
+	private long scan() throws IOException {
+		long total = 0;
+		for ( Path entry : entries() )
+			total += Files.size( entry );
+		return total;
+	}
+
+	/**
+	 * @return the size of the cache after eviction
+	 */
+	private long evict() throws IOException {
+		List< Path > entries = entries();
+		long[] sizes = new long[ entries.size() ];
+		long[] used = new long[ entries.size() ];
+		long total = 0;
+		for ( int i = 0; i < entries.size(); i++ ) {
+			Path entry = entries.get( i );
+			BasicFileAttributes attrs = Files.readAttributes( entry, BasicFileAttributes.class );
+			sizes[ i ] = attrs.size();
+			total += sizes[ i ];
+			Path record = usedRecord( entry );
+			used[ i ] = Files.exists( record ) ? Files.getLastModifiedTime( record ).toMillis() : attrs.lastModifiedTime().toMillis();
+		}
+		List< Integer > order = new ArrayList<>( entries.size() );
+		for ( int i = 0; i < entries.size(); i++ )
+			order.add( i );
+		order.sort( Comparator.comparingLong( i -> used[ i ] ) );
+		for ( int i : order ) {
+			if ( total <= maxSize ) break;
+			Path entry = entries.get( i );
+			Files.deleteIfExists( entry );
+			Files.deleteIfExists( usedRecord( entry ) );
+			total -= sizes[ i ];
+		}
+		deleteLeftovers();
+		return total;
+	}
+
+	/**
+	 * Delete the temporary files of additions that never completed, e.g.
+	 * because their JVM died
+	 */
+	private void deleteLeftovers() throws IOException {
+		long before = System.currentTimeMillis() - TimeUnit.DAYS.toMillis( 1 );
+		List< Path > leftovers = new ArrayList<>();
+		try (Stream< Path > files = Files.walk( root )) {
+			files.filter( file -> file.getFileName().toString().endsWith( ".tmp" ) ).forEach( leftovers::add );
+		}
+		for ( Path leftover : leftovers ) {
+			if ( Files.getLastModifiedTime( leftover ).toMillis() < before ) Files.deleteIfExists( leftover );
+		}
+	}
+
+	/**
+	 * The digest, and its algorithm, a cache entry is stored under.
+	 */
+	static class Key {
+
+		final ChecksumAlgorithm algorithm;
+		final String digest;
+
+		Key( ChecksumAlgorithm algorithm, String digest ) {
+			this.algorithm = algorithm;
+			this.digest = digest;
+		}
+	}
+}
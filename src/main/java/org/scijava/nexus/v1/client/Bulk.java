@@ -0,0 +1,193 @@
+package org.scijava.nexus.v1.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Fans blocking calls out over a client's executor.
+ *
+ * Concurrency is bounded by a semaphore rather than by the size of the
+ * executor, so the same code serves a small platform thread pool and a
+ * virtual-thread-per-task executor. The permit is taken by the submitting
+ * thread, which therefore never queues more tasks than may run.
+ *
+ * @author agent
+ */
+final class Bulk {
+
+	@FunctionalInterface
+	interface Task< T, R > {
+
+		R apply( T item ) throws Exception;
+	}
+
+	private final ExecutorService executor;
+	private final Semaphore permits;
+
+	Bulk( ExecutorService executor, int maxConcurrency ) {
+		this.executor = executor;
+		this.permits = new Semaphore( Math.max( 1, maxConcurrency ), true );
+	}
+
+	/**
+	 * Run the task for every item, at most {@code maxConcurrency} at a time.
+	 *
+	 * @return one future per item, in the iteration order of the items
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a permit; the calls
+	 *             submitted so far are cancelled
+	 */
+	< T, R > List< CompletableFuture< R > > submitAll( Collection< ? extends T > items, Task< ? super T, ? extends R > task ) throws InterruptedException {
+		return submitAll( items, task, () -> false );
+	}
+
+	/**
+	 * Run the task for every item, at most {@code maxConcurrency} at a time,
+	 * until told to stop. Items are only pulled from the iterable as permits
+	 * become available, so it may be a lazily generated sequence.
+	 *
+	 * @param stop
+	 *            - checked before each item; once true, no more items are
+	 *            pulled or submitted
+	 * @return one future per submitted item, in the iteration order of the
+	 *         items
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a permit; the calls
+	 *             submitted so far are cancelled
+	 */
+	< T, R > List< CompletableFuture< R > > submitAll( Iterable< ? extends T > items, Task< ? super T, ? extends R > task, BooleanSupplier stop ) throws InterruptedException {
+		return submitAll( items, task, stop, null );
+	}
+
+	/**
+	 * Variant of {@link #submitAll(Iterable, Task, BooleanSupplier)} for
+	 * tasks that also need a permit of a semaphore of their own, e.g. one per
+	 * host. The submitting thread takes that permit before one of the overall
+	 * permits, so that no task holds an overall permit while it waits, and
+	 * tasks bound by other semaphores keep running. Every item pulled is then
+	 * submitted.
+	 *
+	 * @param gate
+	 *            - the semaphore an item needs a permit of, or null if none;
+	 *            the permit is released when the task completes
+	 */
+	< T, R > List< CompletableFuture< R > > submitAll( Iterable< ? extends T > items, Task< ? super T, ? extends R > task, BooleanSupplier stop, Function< ? super T, Semaphore > gate ) throws InterruptedException {
+		List< CompletableFuture< R > > results = ( items instanceof Collection ) ? new ArrayList<>( ( ( Collection< ? > ) items ).size() ) : new ArrayList<>();
+		try {
+			Iterator< ? extends T > iterator = items.iterator();
+			while ( true ) {
+				T item;
+				Semaphore own = null;
+				if ( gate == null ) {
+					permits.acquire();
+					// only pull an item that will be submitted
+					if ( stop.getAsBoolean() || !iterator.hasNext() ) {
+						permits.release();
+						break;
+					}
+					item = iterator.next();
+				} else {
+					if ( stop.getAsBoolean() || !iterator.hasNext() ) break;
+					item = iterator.next();
+					own = gate.apply( item );
+					if ( own != null ) own.acquire();
+					try {
+						permits.acquire();
+					} catch ( InterruptedException e ) {
+						if ( own != null ) own.release();
+						throw e;
+					}
+				}
+				Semaphore ownPermit = own;
+				CompletableFuture< R > result = new CompletableFuture<>();
+				results.add( result );
+				try {
+					executor.execute( () -> {
+						try {
+							if ( !result.isDone() ) result.complete( task.apply( item ) );
+						} catch ( Throwable t ) {
+							result.completeExceptionally( t );
+						} finally {
+							permits.release();
+							if ( ownPermit != null ) ownPermit.release();
+						}
+					} );
+				} catch ( RuntimeException e ) {
+					permits.release();
+					if ( ownPermit != null ) ownPermit.release();
+					result.completeExceptionally( e );
+				}
+			}
+		} catch ( InterruptedException e ) {
+			cancelAll( results );
+			throw e;
+		}
+		return results;
+	}
+
+	/**
+	 * Run the task for every item and wait for all of them. On the first
+	 * failure the calls that have not started yet are skipped.
+	 *
+	 * @return the results, in the iteration order of the items
+	 * @throws NexusReSTClientException
+	 *             the first failure, in item order
+	 */
+	< T, R > List< R > invokeAll( Collection< ? extends T > items, Task< ? super T, ? extends R > task ) throws NexusReSTClientException {
+		List< CompletableFuture< R > > futures;
+		try {
+			futures = submitAll( items, task );
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new NexusReSTClientException( e );
+		}
+		List< R > results = new ArrayList<>( futures.size() );
+		for ( CompletableFuture< R > future : futures ) {
+			try {
+				results.add( future.get() );
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				cancelAll( futures );
+				throw new NexusReSTClientException( e );
+			} catch ( ExecutionException e ) {
+				cancelAll( futures );
+				throw failure( e.getCause() );
+			}
+		}
+		return results;
+	}
+
+	static NexusReSTClientException failure( Throwable error ) {
+		while ( ( error instanceof CompletionException || error instanceof ExecutionException ) && error.getCause() != null )
+			error = error.getCause();
+		if ( error instanceof NexusReSTClientException ) return ( NexusReSTClientException ) error;
+		return new NexusReSTClientException( error );
+	}
+
+	/**
+	 * @return a virtual-thread-per-task executor, or null if the runtime does
+	 *         not support virtual threads
+	 */
+	static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return ( ExecutorService ) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null );
+		} catch ( ReflectiveOperationException e ) {
+			return null;
+		}
+	}
+
+	private static void cancelAll( List< ? extends CompletableFuture< ? > > futures ) {
+		for ( CompletableFuture< ? > future : futures )
+			future.cancel( false );
+	}
+}
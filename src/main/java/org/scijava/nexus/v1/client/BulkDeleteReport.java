@@ -0,0 +1,78 @@
+package org.scijava.nexus.v1.client;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk delete: what happened to each ID, and totals.
+ *
+ * @author agent
+ *
+ */
+
+public class BulkDeleteReport {
+
+	public enum Status {
+		/** deleted by this call */
+		DELETED,
+		/** the server answered 404: already deleted, or never existed */
+		NOT_FOUND,
+		FAILED
+	}
+
+	private final List< Outcome > outcomes;
+
+	BulkDeleteReport( List< Outcome > outcomes ) {
+		this.outcomes = Collections.unmodifiableList( outcomes );
+	}
+
+	/**
+	 * @return the outcome of every ID, in the order they were given
+	 */
+	public List< Outcome > getOutcomes() {
+		return outcomes;
+	}
+
+	public int count( Status status ) {
+		int count = 0;
+		for ( Outcome outcome : outcomes ) {
+			if ( outcome.status == status ) count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return true if every ID is gone, whether deleted by this call or not
+	 */
+	public boolean isSuccessful() {
+		return count( Status.FAILED ) == 0;
+	}
+
+	public static class Outcome {
+
+		private final String id;
+		private final Status status;
+		private final NexusReSTClientException error;
+
+		Outcome( String id, Status status, NexusReSTClientException error ) {
+			this.id = id;
+			this.status = status;
+			this.error = error;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 * @return why the delete failed, or null
+		 */
+		public NexusReSTClientException getError() {
+			return error;
+		}
+	}
+}
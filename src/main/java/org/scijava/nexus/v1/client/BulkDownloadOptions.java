@@ -0,0 +1,95 @@
+package org.scijava.nexus.v1.client;
+
+/**
+ * Limits and behaviour of a bulk download, see
+ * {@link NexusClient#downloadAssets(java.util.Collection, String, BulkDownloadOptions)}.
+ *
+ * @author agent
+ *
+ */
+
+public class BulkDownloadOptions {
+
+	public enum FailurePolicy {
+		/** download every asset, whatever the failures */
+		CONTINUE,
+		/** stop starting downloads after the first failure */
+		FAIL_FAST
+	}
+
+	private int maxConcurrentTransfers = 4;
+	private long maxBytesPerSecond = -1;
+	private int maxTransfersPerHost = -1;
+	private FailurePolicy failurePolicy = FailurePolicy.CONTINUE;
+	private boolean preservePaths = false;
+
+	public int getMaxConcurrentTransfers() {
+		return maxConcurrentTransfers;
+	}
+
+	/**
+	 *
+	 * @param maxConcurrentTransfers
+	 *            - maximum number of assets downloaded at the same time
+	 */
+	public void setMaxConcurrentTransfers( int maxConcurrentTransfers ) {
+		this.maxConcurrentTransfers = maxConcurrentTransfers;
+	}
+
+	public long getMaxBytesPerSecond() {
+		return maxBytesPerSecond;
+	}
+
+	/**
+	 *
+	 * @param maxBytesPerSecond
+	 *            - combined throughput of all the transfers, -1 for no limit
+	 */
+	public void setMaxBytesPerSecond( long maxBytesPerSecond ) {
+		this.maxBytesPerSecond = maxBytesPerSecond;
+	}
+
+	public int getMaxTransfersPerHost() {
+		return maxTransfersPerHost;
+	}
+
+	/**
+	 *
+	 * @param maxTransfersPerHost
+	 *            - maximum number of assets downloaded from the same host at
+	 *            the same time, -1 for no limit other than the overall one
+	 */
+	public void setMaxTransfersPerHost( int maxTransfersPerHost ) {
+		this.maxTransfersPerHost = maxTransfersPerHost;
+	}
+
+	public FailurePolicy getFailurePolicy() {
+		return failurePolicy;
+	}
+
+	/**
+	 *
+	 * @param failurePolicy
+	 *            - whether to carry on after a failed download
+	 */
+	public void setFailurePolicy( FailurePolicy failurePolicy ) {
+		this.failurePolicy = failurePolicy;
+	}
+
+	public boolean isPreservePaths() {
+		return preservePaths;
+	}
+
+	/**
+	 *
+	 * @param preservePaths
+	 *            - save each asset under its repository path within the
+	 *            download directory, rather than by file name only as
+	 *            {@link NexusClient#getAsset(String, String)} does. Without
+	 *            it, of several assets with the same file name only the first
+	 *            is downloaded, the others fail.
+	 */
+	public void setPreservePaths( boolean preservePaths ) {
+		this.preservePaths = preservePaths;
+	}
+}
@@ -0,0 +1,108 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.scijava.nexus.v1.client.domain.Asset;
+
+/**
+ * Outcome of a bulk download: what happened to each asset, and totals.
+ *
+ * @author agent
+ *
+ */
+
+public class BulkDownloadReport {
+
+	public enum Status {
+		DOWNLOADED, FAILED, SKIPPED
+	}
+
+	private final List< Outcome > outcomes;
+	private final long elapsedMillis;
+
+	BulkDownloadReport( List< Outcome > outcomes, long elapsedMillis ) {
+		this.outcomes = Collections.unmodifiableList( outcomes );
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * @return the outcome of every asset attempted, in the order they were
+	 *         given. With {@link BulkDownloadOptions.FailurePolicy#FAIL_FAST},
+	 *         the assets after those in flight at the first failure are not
+	 *         listed.
+	 */
+	public List< Outcome > getOutcomes() {
+		return outcomes;
+	}
+
+	public int count( Status status ) {
+		int count = 0;
+		for ( Outcome outcome : outcomes ) {
+			if ( outcome.status == status ) count++;
+		}
+		return count;
+	}
+
+	public boolean isSuccessful() {
+		return count( Status.DOWNLOADED ) == outcomes.size();
+	}
+
+	/**
+	 * @return the number of bytes written, over all the assets
+	 */
+	public long getBytes() {
+		long bytes = 0;
+		for ( Outcome outcome : outcomes )
+			bytes += outcome.bytes;
+		return bytes;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public static class Outcome {
+
+		private final Asset asset;
+		private final Status status;
+		private final File file;
+		private final long bytes;
+		private final NexusReSTClientException error;
+
+		Outcome( Asset asset, Status status, File file, long bytes, NexusReSTClientException error ) {
+			this.asset = asset;
+			this.status = status;
+			this.file = file;
+			this.bytes = bytes;
+			this.error = error;
+		}
+
+		public Asset getAsset() {
+			return asset;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 * @return the downloaded file, or null if not downloaded
+		 */
+		public File getFile() {
+			return file;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return why the download failed, or null
+		 */
+		public NexusReSTClientException getError() {
+			return error;
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.scijava.nexus.v1.client.BulkDownloadOptions.FailurePolicy;
+import org.scijava.nexus.v1.client.BulkDownloadReport.Outcome;
+import org.scijava.nexus.v1.client.BulkDownloadReport.Status;
+import org.scijava.nexus.v1.client.domain.Asset;
+
+/**
+ * Downloads many assets from their known download URLs, without fetching
+ * their metadata again, within the limits of a {@link BulkDownloadOptions}.
+ *
+ * The overall number of transfers is bounded by a {@link Bulk}, the number
+ * per host by one semaphore per host, and the combined throughput by a
+ * {@link Throttle} shared by all the transfers. A transfer waits for its host
+ * before taking one of the overall slots, so a slow host does not hold up
+ * the others. Failures are recorded in the report instead of thrown.
+ *
+ * Assets that would be saved to the same file, e.g. several
+ * {@code maven-metadata.xml} without preserved paths, are not downloaded
+ * over each other: all but the first fail.
+ *
+ * @author agent
+ */
+class BulkDownloader {
+
+	private final NexusClient session;
+	private final BulkDownloadOptions options;
+	private final Path root;
+	private final Downloader downloader;
+	private final ConcurrentHashMap< String, Semaphore > hosts = new ConcurrentHashMap<>();
+	private final AtomicBoolean failed = new AtomicBoolean();
+
+	BulkDownloader( NexusClient session, Downloader downloader, String downloadDir, BulkDownloadOptions options ) {
+		this.session = session;
+		this.options = options;
+		root = Paths.get( downloadDir ).toAbsolutePath().normalize();
+		this.downloader = ( options.getMaxBytesPerSecond() > 0 ) ? downloader.throttled( new Throttle( options.getMaxBytesPerSecond() ) ) : downloader;
+	}
+
+	/**
+	 *
+	 * @param assets
+	 *            - the assets to download, pulled only as transfers can start
+	 * @return the outcome of each asset attempted
+	 * @throws NexusReSTClientException
+	 *             if interrupted
+	 */
+	BulkDownloadReport run( Iterable< Asset > assets ) throws NexusReSTClientException {
+		long start = System.nanoTime();
+		boolean failFast = options.getFailurePolicy() == FailurePolicy.FAIL_FAST;
+		List< Transfer > attempted = new ArrayList<>();
+		// target files claimed so far, pulled in order by the submitting
+		// thread, so the first of several assets sharing a file name wins
+		Map< Path, String > claimed = new HashMap<>();
+		Iterable< Transfer > recorded = () -> new Iterator< Transfer >() {
+
+			private final Iterator< Asset > iterator = assets.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Transfer next() {
+				Transfer transfer = transfer( iterator.next(), claimed );
+				attempted.add( transfer );
+				return transfer;
+			}
+		};
+
+		Bulk bulk = new Bulk( session.executor(), options.getMaxConcurrentTransfers() );
+		List< CompletableFuture< Outcome > > transfers;
+		try {
+			transfers = bulk.submitAll( recorded, this::download, () -> failFast && failed.get(),
+					transfer -> ( transfer.error == null ) ? host( transfer.asset.getDownloadUrl() ) : null );
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new NexusReSTClientException( e );
+		}
+
+		List< Outcome > outcomes = new ArrayList<>( transfers.size() );
+		for ( int i = 0; i < transfers.size(); i++ ) {
+			try {
+				outcomes.add( transfers.get( i ).join() );
+			} catch ( CompletionException e ) {
+				// the executor refused the task
+				outcomes.add( new Outcome( attempted.get( i ).asset, Status.FAILED, null, 0, Bulk.failure( e ) ) );
+			}
+		}
+		return new BulkDownloadReport( outcomes, TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) );
+	}
+
+	/**
+	 * @return where to save the asset, or why it cannot be saved
+	 */
+	private Transfer transfer( Asset asset, Map< Path, String > claimed ) {
+		try {
+			Path target = target( asset );
+			String previous = claimed.putIfAbsent( target, asset.getPath() );
+			if ( previous == null ) return new Transfer( asset, target, null );
+			return new Transfer( asset, null, new NexusReSTClientException( "Asset " + asset.getPath() + " would overwrite " + target.getFileName()
+					+ ", already downloaded for " + previous + "; preserve paths to keep both" ) );
+		} catch ( NexusReSTClientException e ) {
+			return new Transfer( asset, null, e );
+		}
+	}
+
+	private Outcome download( Transfer transfer ) {
+		Asset asset = transfer.asset;
+		if ( options.getFailurePolicy() == FailurePolicy.FAIL_FAST && failed.get() )
+			return new Outcome( asset, Status.SKIPPED, null, 0, null );
+		try {
+			if ( transfer.error != null ) throw transfer.error;
+			Files.createDirectories( transfer.target.getParent() );
+			File file = session.saveAsset( asset, transfer.target, downloader );
+			return new Outcome( asset, Status.DOWNLOADED, file, file.length(), null );
+		} catch ( Exception e ) {
+			if ( e instanceof InterruptedException ) Thread.currentThread().interrupt();
+			failed.set( true );
+			return new Outcome( asset, Status.FAILED, null, 0, Bulk.failure( e ) );
+		}
+	}
+
+	private Path target( Asset asset ) throws NexusReSTClientException {
+		String url = asset.getDownloadUrl();
+		if ( !options.isPreservePaths() ) return root.resolve( url.substring( url.lastIndexOf( '/' ) + 1 ) );
+		Path target = root.resolve( asset.getPath() ).normalize();
+		if ( !target.startsWith( root ) || target.equals( root ) )
+			throw new NexusReSTClientException( "Asset path outside the download directory: " + asset.getPath() );
+		return target;
+	}
+
+	/**
+	 * @return the semaphore bounding the transfers to the URL's host, or null
+	 *         if they are not bounded
+	 */
+	private Semaphore host( String url ) {
+		if ( options.getMaxTransfersPerHost() <= 0 ) return null;
+		URI uri = URI.create( url );
+		return hosts.computeIfAbsent( uri.getHost() + ":" + uri.getPort(), host -> new Semaphore( options.getMaxTransfersPerHost(), true ) );
+	}
+
+	/**
+	 * An asset to download and its target file, or why it cannot be
+	 * downloaded
+	 */
+	private static class Transfer {
+
+		final Asset asset;
+		final Path target;
+		final NexusReSTClientException error;
+
+		Transfer( Asset asset, Path target, NexusReSTClientException error ) {
+			this.asset = asset;
+			this.target = target;
+			this.error = error;
+		}
+	}
+}
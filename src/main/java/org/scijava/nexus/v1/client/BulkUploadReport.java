@@ -0,0 +1,76 @@
+package org.scijava.nexus.v1.client;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk upload: what happened to each file, and totals.
+ *
+ * @author agent
+ *
+ */
+
+public class BulkUploadReport {
+
+	public enum Status {
+		UPLOADED, FAILED
+	}
+
+	private final List< Outcome > outcomes;
+
+	BulkUploadReport( List< Outcome > outcomes ) {
+		this.outcomes = Collections.unmodifiableList( outcomes );
+	}
+
+	/**
+	 * @return the outcome of every file or component, in the order they were
+	 *         given. Files sent in the same request succeed or fail together.
+	 */
+	public List< Outcome > getOutcomes() {
+		return outcomes;
+	}
+
+	public int count( Status status ) {
+		int count = 0;
+		for ( Outcome outcome : outcomes ) {
+			if ( outcome.status == status ) count++;
+		}
+		return count;
+	}
+
+	public boolean isSuccessful() {
+		return count( Status.FAILED ) == 0;
+	}
+
+	public static class Outcome {
+
+		private final String path;
+		private final Status status;
+		private final NexusReSTClientException error;
+
+		Outcome( String path, Status status, NexusReSTClientException error ) {
+			this.path = path;
+			this.status = status;
+			this.error = error;
+		}
+
+		/**
+		 * @return the path of the file, relative to the upload directory, or
+		 *         the groupId:artifactId:version of a maven2 component
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 * @return why the request carrying the file failed, or null
+		 */
+		public NexusReSTClientException getError() {
+			return error;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package org.scijava.nexus.v1.client;
+
+/**
+ * A {@link MetadataCache} entry: the metadata along with the validators of
+ * the response it came from, used to revalidate it once expired.
+ *
+ * The value is a {@link org.scijava.nexus.v1.client.domain.Repository}
+ * array, an {@link org.scijava.nexus.v1.client.domain.Asset}, a
+ * {@link org.scijava.nexus.v1.client.domain.Component} or a read-only
+ * {@link java.util.List} of search or listing results, depending on the
+ * {@link MetadataCache.Type} it is cached under.
+ *
+ * @author agent
+ */
+public final class CachedMetadata< T > {
+
+	private final T value;
+	private final String etag;
+	private final String lastModified;
+
+	/**
+	 *
+	 * @param value
+	 *            - the cached metadata
+	 * @param etag
+	 *            - the ETag of the response, or null
+	 * @param lastModified
+	 *            - the Last-Modified date of the response, or null
+	 */
+	public CachedMetadata( T value, String etag, String lastModified ) {
+		this.value = value;
+		this.etag = etag;
+		this.lastModified = lastModified;
+	}
+
+	public T getValue() {
+		return value;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+
+	public String getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * @return true if the entry can be revalidated with a conditional request
+	 */
+	public boolean isValidated() {
+		return etag != null || lastModified != null;
+	}
+}
@@ -0,0 +1,63 @@
+package org.scijava.nexus.v1.client;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Function;
+
+import org.scijava.nexus.v1.client.domain.Checksum;
+
+/**
+ * The digests Nexus publishes for an asset, any of which can be used to
+ * verify a download.
+ *
+ * @author agent
+ */
+public enum ChecksumAlgorithm {
+
+	SHA1( "SHA-1", Checksum::getSha1 ),
+	SHA256( "SHA-256", Checksum::getSha256 ),
+	SHA512( "SHA-512", Checksum::getSha512 ),
+	MD5( "MD5", Checksum::getMd5 );
+
+	private final String name;
+	private final Function< Checksum, String > value;
+
+	ChecksumAlgorithm( String name, Function< Checksum, String > value ) {
+		this.name = name;
+		this.value = value;
+	}
+
+	/**
+	 *
+	 * @param checksum
+	 *            - the checksums of an asset, may be null
+	 * @return the asset's digest for this algorithm in hexadecimal, or null
+	 *         if the server did not provide it
+	 */
+	public String of( Checksum checksum ) {
+		return ( checksum == null ) ? null : value.apply( checksum );
+	}
+
+	/**
+	 * @return a new digest of this algorithm
+	 * @throws IllegalStateException
+	 *             if the Java platform does not provide it: only MD5, SHA-1
+	 *             and SHA-256 are required of every platform
+	 */
+	MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance( name );
+		} catch ( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException( "No " + name + " digest on this Java platform; verify downloads with another algorithm", e );
+		}
+	}
+
+	static String hex( byte[] digest ) {
+		char[] hex = new char[ digest.length * 2 ];
+		for ( int i = 0; i < digest.length; i++ ) {
+			hex[ 2 * i ] = Character.forDigit( ( digest[ i ] >> 4 ) & 0xf, 16 );
+			hex[ 2 * i + 1 ] = Character.forDigit( digest[ i ] & 0xf, 16 );
+		}
+		return new String( hex );
+	}
+}
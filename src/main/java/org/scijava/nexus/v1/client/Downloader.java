@@ -0,0 +1,670 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.scijava.nexus.v1.client.domain.Checksum;
+
+/**
+ * Streams asset downloads to disk over a session's pooled connections, so
+ * its credentials apply and the connection is kept alive for the next file.
+ *
+ * The body is written once, to a uniquely named temporary file next to the
+ * destination, which is then renamed over the destination. Concurrent
+ * downloads of the same name therefore never see each other's partial data,
+ * and a failed download leaves nothing behind.
+ *
+ * With resumption enabled, the body goes to {@code <name>.part} instead,
+ * which is kept if the transfer breaks off. The next download of the same
+ * file only requests the missing bytes with a {@code Range} header. The
+ * partial data is validated by sending the ETag recorded alongside it
+ * ({@code <name>.part.etag}) as {@code If-Range}, and by the asset's
+ * checksum once complete. A server that ignores the range simply sends the
+ * whole file again.
+ *
+ * If the asset's checksum is known, the digest is computed as the bytes
+ * stream to disk and compared before the file is moved into place, so a
+ * corrupted or truncated transfer fails and leaves no file behind.
+ *
+ * With segmentation enabled, a file above the size threshold is fetched as
+ * several byte ranges at once, over as many connections, each written at its
+ * offset in a preallocated file. The assembled file is then verified against
+ * the asset's checksum.
+ *
+ * With revalidation enabled, the ETag and Last-Modified date of a download
+ * are recorded next to it ({@code .<name>.validators}). The next download to
+ * the same place is a conditional request, answered by 304 Not Modified
+ * without a body if the file is still current. The record is ignored once
+ * the file has been modified or replaced locally.
+ *
+ * @author agent
+ */
+class Downloader {
+
+	private static final long CHUNK = 1 << 20;
+	private static final String PART = ".part";
+	private static final String ETAG = ".part.etag";
+
+	private final Client client;
+	private final boolean resume;
+	private final boolean revalidate;
+	private final ChecksumAlgorithm algorithm;
+	private final int segments;
+	private final long segmentThreshold;
+	private final Supplier< ExecutorService > executor;
+	private final Throttle throttle;
+	/** Null unless a listener is configured */
+	private final MetricsListener metrics;
+
+	/**
+	 *
+	 * @param client
+	 *            - the session's pooled client
+	 * @param config
+	 *            - whether to resume, revalidate, segment and verify
+	 *            downloads
+	 * @param executor
+	 *            - the session's executor, which fetches segments
+	 */
+	Downloader( Client client, NexusClientConfig config, Supplier< ExecutorService > executor ) {
+		this.client = client;
+		resume = config.isResumeDownloads();
+		revalidate = config.isRevalidateDownloads();
+		algorithm = config.getChecksumAlgorithm();
+		segments = config.getDownloadSegments();
+		segmentThreshold = config.getSegmentThreshold();
+		this.executor = executor;
+		throttle = null;
+		metrics = config.getMetricsListener();
+	}
+
+	private Downloader( Downloader downloader, Throttle throttle ) {
+		client = downloader.client;
+		resume = downloader.resume;
+		revalidate = downloader.revalidate;
+		algorithm = downloader.algorithm;
+		segments = downloader.segments;
+		segmentThreshold = downloader.segmentThreshold;
+		executor = downloader.executor;
+		metrics = downloader.metrics;
+		this.throttle = throttle;
+	}
+
+	/**
+	 * @return a downloader like this one whose transfers share the given
+	 *         throughput cap
+	 */
+	Downloader throttled( Throttle throttle ) {
+		return new Downloader( this, throttle );
+	}
+
+	/**
+	 *
+	 * @param url
+	 *            - where to download from
+	 * @param target
+	 *            - the destination file, replaced if it exists
+	 * @param checksum
+	 *            - the expected checksum of the file, or null if unknown
+	 * @return the destination file
+	 * @throws IOException
+	 *             if the transfer fails or the file does not match its
+	 *             checksum
+	 */
+	File download( String url, Path target, Checksum checksum ) throws IOException {
+		return download( url, target, algorithm, ( algorithm == null ) ? null : algorithm.of( checksum ) );
+	}
+
+	/**
+	 *
+	 * @param url
+	 *            - where to download from
+	 * @param target
+	 *            - the destination file, replaced if it exists
+	 * @param algorithm
+	 *            - the digest to verify the file with, regardless of the
+	 *            configured one
+	 * @param expected
+	 *            - the expected digest in hexadecimal, or null not to verify
+	 * @return the destination file
+	 * @throws IOException
+	 *             if the transfer fails or the file does not match its
+	 *             checksum
+	 */
+	File download( String url, Path target, ChecksumAlgorithm algorithm, String expected ) throws IOException {
+		Validators known = revalidate ? Validators.read( target ) : null;
+		if ( segments > 1 && known == null ) {
+			File segmented = downloadSegmented( url, target, algorithm, expected );
+			if ( segmented != null ) return segmented;
+		}
+		if ( resume && known == null ) {
+			File resumed = downloadResumable( url, target, algorithm, expected );
+			if ( resumed != null ) return resumed;
+		}
+		Invocation.Builder request = client.target( url ).request();
+		if ( known != null ) known.addTo( request );
+		Response response = request.get();
+		try {
+			if ( known != null && response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode() )
+				return target.toFile();
+			if ( response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL )
+				ClientInvocation.handleErrorStatus( response );
+			Path tmp = temporary( target );
+			try {
+				MessageDigest digest = ( expected == null ) ? null : algorithm.newDigest();
+				try (FileChannel sink = FileChannel.open( tmp, StandardOpenOption.WRITE )) {
+					transfer( response.readEntity( InputStream.class ), sink, 0, digest );
+				}
+				verify( url, expected, digest );
+				moveInto( tmp, target );
+			} catch ( IOException | RuntimeException e ) {
+				Files.deleteIfExists( tmp );
+				throw e;
+			}
+			if ( revalidate ) new Validators( response ).write( target );
+			return target.toFile();
+		} finally {
+			response.close();
+		}
+	}
+
+	/**
+	 * @return the destination file, or null if the file is below the
+	 *         threshold or the server does not serve ranges of it
+	 */
+	private File downloadSegmented( String url, Path target, ChecksumAlgorithm algorithm, String expected ) throws IOException {
+		Response head = client.target( url ).request().head();
+		long length;
+		Validators validators;
+		try {
+			if ( head.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL )
+				ClientInvocation.handleErrorStatus( head );
+			length = head.getLength();
+			if ( length < segmentThreshold || length < segments || !"bytes".equalsIgnoreCase( head.getHeaderString( "Accept-Ranges" ) ) )
+				return null;
+			validators = new Validators( head );
+		} finally {
+			head.close();
+		}
+
+		Path tmp = temporary( target );
+		try {
+			try (FileChannel sink = FileChannel.open( tmp, StandardOpenOption.READ, StandardOpenOption.WRITE )) {
+				// preallocate, so that the segments only ever write into the file
+				sink.write( ByteBuffer.allocate( 1 ), length - 1 );
+				fetchSegments( url, sink, length, validators.etag );
+				if ( expected != null ) {
+					MessageDigest digest = algorithm.newDigest();
+					digestPrefix( sink, length, digest );
+					verify( url, expected, digest );
+				}
+			}
+			moveInto( tmp, target );
+		} catch ( RangeNotServedException e ) {
+			// advertised, but not honoured: download as a single stream
+			Files.deleteIfExists( tmp );
+			return null;
+		} catch ( IOException | RuntimeException e ) {
+			Files.deleteIfExists( tmp );
+			throw e;
+		}
+		if ( revalidate ) validators.write( target );
+		return target.toFile();
+	}
+
+	/**
+	 * Fetch the segments of the file concurrently. The calling thread works
+	 * through them along with helpers on the executor, claiming the next
+	 * segment as it finishes one, so the download completes even if the
+	 * executor has no thread to spare.
+	 */
+	private void fetchSegments( String url, FileChannel sink, long length, String etag ) throws IOException {
+		long size = ( length + segments - 1 ) / segments;
+		int count = ( int ) ( ( length + size - 1 ) / size );
+		AtomicInteger next = new AtomicInteger();
+		AtomicReference< Exception > failure = new AtomicReference<>();
+		CountDownLatch done = new CountDownLatch( count );
+		Runnable worker = () -> {
+			int segment;
+			while ( ( segment = next.getAndIncrement() ) < count ) {
+				try {
+					if ( failure.get() == null ) {
+						long from = segment * size;
+						fetchRange( url, sink, from, Math.min( from + size, length ) - 1, etag );
+					}
+				} catch ( Exception e ) {
+					failure.compareAndSet( null, e );
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+		List< Future< ? > > helpers = new ArrayList<>( count - 1 );
+		try {
+			for ( int i = 1; i < count; i++ )
+				helpers.add( executor.get().submit( worker ) );
+			worker.run();
+			done.await();
+		} catch ( InterruptedException e ) {
+			failure.compareAndSet( null, e );
+			Thread.currentThread().interrupt();
+		} finally {
+			for ( Future< ? > helper : helpers )
+				helper.cancel( true );
+		}
+		Exception e = failure.get();
+		if ( e instanceof IOException ) throw ( IOException ) e;
+		if ( e instanceof RuntimeException ) throw ( RuntimeException ) e;
+		if ( e != null ) throw new IOException( e );
+	}
+
+	private void fetchRange( String url, FileChannel sink, long from, long to, String etag ) throws IOException {
+		Invocation.Builder request = client.target( url ).request().header( "Range", "bytes=" + from + "-" + to );
+		if ( etag != null ) request.header( "If-Range", etag );
+		Response response = request.get();
+		try {
+			if ( response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL )
+				ClientInvocation.handleErrorStatus( response );
+			if ( response.getStatus() != 206 || rangeStart( response ) != from )
+				throw new RangeNotServedException( "Range " + from + "-" + to + " of " + url + " not served" );
+			long position = from;
+			try (ReadableByteChannel source = source( response.readEntity( InputStream.class ), null )) {
+				long transferred;
+				while ( position <= to && ( transferred = sink.transferFrom( source, position, Math.min( CHUNK, to + 1 - position ) ) ) > 0 )
+					position += transferred;
+			}
+			if ( position != to + 1 ) throw new IOException( "Range " + from + "-" + to + " of " + url + " truncated" );
+		} finally {
+			response.close();
+		}
+	}
+
+	/**
+	 * @return the destination file, or null if the partial file is locked by
+	 *         another download, or was completed by one meanwhile
+	 */
+	private File downloadResumable( String url, Path target, ChecksumAlgorithm algorithm, String expected ) throws IOException {
+		Path part = target.resolveSibling( target.getFileName() + PART );
+		Path validator = target.resolveSibling( target.getFileName() + ETAG );
+		MessageDigest digest = ( expected == null ) ? null : algorithm.newDigest();
+		Validators validators;
+		Object key = createPart( part );
+		FileChannel sink;
+		try {
+			sink = FileChannel.open( part, StandardOpenOption.READ, StandardOpenOption.WRITE );
+		} catch ( NoSuchFileException e ) {
+			return null;
+		}
+		try {
+			FileLock lock = tryLock( sink );
+			if ( lock == null ) return null;
+			// held until the file is in place, so that no other download
+			// resumes it in the meantime
+			try {
+				// another download may have moved the file opened here onto
+				// its target before it was locked
+				if ( !Objects.equals( key, fileKey( part ) ) ) return null;
+				long offset = sink.size();
+				String etag = ( offset > 0 && Files.exists( validator ) ) ? new String( Files.readAllBytes( validator ), StandardCharsets.UTF_8 ) : null;
+				try {
+					validators = fetch( url, offset, etag, sink, validator, digest );
+					if ( validators == null ) {
+						// the partial file does not fit the current asset
+						sink.truncate( 0 );
+						validators = fetch( url, 0, null, sink, validator, digest );
+					}
+				} catch ( IOException | RuntimeException e ) {
+					// e.g. not found: nothing to resume, so leave nothing
+					if ( sink.size() == 0 ) {
+						Files.deleteIfExists( part );
+						Files.deleteIfExists( validator );
+					}
+					throw e;
+				}
+				try {
+					verify( url, expected, digest );
+				} catch ( IOException e ) {
+					Files.deleteIfExists( part );
+					Files.deleteIfExists( validator );
+					throw e;
+				}
+				moveInto( part, target );
+				Files.deleteIfExists( validator );
+			} finally {
+				lock.release();
+			}
+		} finally {
+			sink.close();
+		}
+		if ( revalidate ) validators.write( target );
+		return target.toFile();
+	}
+
+	/**
+	 * Create the partial file unless it exists.
+	 *
+	 * @return its file key, to tell whether it is still the same file later
+	 */
+	private static Object createPart( Path part ) throws IOException {
+		try {
+			Files.createFile( part );
+		} catch ( FileAlreadyExistsException e ) {
+			// resume it
+		}
+		return fileKey( part );
+	}
+
+	/**
+	 * @return the file key of the file, null if the platform has none, or a
+	 *         key equal to no other if the file does not exist
+	 */
+	private static Object fileKey( Path file ) throws IOException {
+		try {
+			return Files.readAttributes( file, BasicFileAttributes.class ).fileKey();
+		} catch ( NoSuchFileException e ) {
+			return new Object();
+		}
+	}
+
+	/**
+	 * Fetch the file from the given offset, or all of it if the server sends
+	 * the whole body.
+	 *
+	 * @return null if the server refused the range (416) or sent another one
+	 *         than requested, else the validators of the response once the
+	 *         body has been written
+	 */
+	private Validators fetch( String url, long offset, String etag, FileChannel sink, Path validator, MessageDigest digest ) throws IOException {
+		Invocation.Builder request = client.target( url ).request();
+		if ( offset > 0 ) {
+			request.header( "Range", "bytes=" + offset + "-" );
+			if ( etag != null ) request.header( "If-Range", etag );
+		}
+		Response response = request.get();
+		try {
+			int status = response.getStatus();
+			if ( status == 416 && offset > 0 ) return null;
+			if ( status != 200 && status != 206 ) ClientInvocation.handleErrorStatus( response );
+			if ( status == 206 && rangeStart( response ) != offset ) {
+				if ( offset > 0 ) return null;
+				throw new IOException( "Range " + response.getHeaderString( "Content-Range" ) + " of " + url + " not requested" );
+			}
+			long position = ( status == 206 ) ? offset : 0;
+			if ( position == 0 ) {
+				sink.truncate( 0 );
+				if ( digest != null ) digest.reset();
+				String newEtag = response.getHeaderString( HttpHeaders.ETAG );
+				if ( newEtag != null )
+					Files.write( validator, newEtag.getBytes( StandardCharsets.UTF_8 ) );
+				else
+					Files.deleteIfExists( validator );
+			} else if ( digest != null ) {
+				// the kept bytes still have to go into the digest
+				digestPrefix( sink, position, digest );
+			}
+			transfer( response.readEntity( InputStream.class ), sink, position, digest );
+			return new Validators( response );
+		} finally {
+			response.close();
+		}
+	}
+
+	private static long rangeStart( Response response ) {
+		// Content-Range: bytes <start>-<end>/<length>
+		String range = response.getHeaderString( "Content-Range" );
+		if ( range == null || !range.startsWith( "bytes " ) ) return -1;
+		try {
+			return Long.parseLong( range.substring( 6, range.indexOf( '-' ) ).trim() );
+		} catch ( RuntimeException e ) {
+			return -1;
+		}
+	}
+
+	private static FileLock tryLock( FileChannel channel ) throws IOException {
+		try {
+			return channel.tryLock();
+		} catch ( OverlappingFileLockException e ) {
+			return null;
+		}
+	}
+
+	private void transfer( InputStream in, FileChannel sink, long position, MessageDigest digest ) throws IOException {
+		try (ReadableByteChannel source = source( in, digest )) {
+			long transferred;
+			while ( ( transferred = sink.transferFrom( source, position, CHUNK ) ) > 0 )
+				position += transferred;
+		}
+	}
+
+	private ReadableByteChannel source( InputStream in, MessageDigest digest ) {
+		ReadableByteChannel source = Channels.newChannel( in );
+		if ( digest != null ) source = new DigestChannel( source, digest );
+		if ( throttle != null ) source = throttle.wrap( source );
+		if ( metrics != null ) source = new CountingChannel( source, metrics );
+		return source;
+	}
+
+	static void digestPrefix( FileChannel file, long length, MessageDigest digest ) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate( 1 << 16 );
+		long position = 0;
+		while ( position < length ) {
+			// through Buffer, whose methods a Java 8 runtime has
+			( ( Buffer ) buffer ).clear();
+			if ( length - position < buffer.capacity() ) ( ( Buffer ) buffer ).limit( ( int ) ( length - position ) );
+			int read = file.read( buffer, position );
+			if ( read < 0 ) break;
+			( ( Buffer ) buffer ).flip();
+			digest.update( buffer );
+			position += read;
+		}
+	}
+
+	private static void verify( String url, String expected, MessageDigest digest ) throws IOException {
+		if ( expected == null ) return;
+		String actual = ChecksumAlgorithm.hex( digest.digest() );
+		if ( !expected.equalsIgnoreCase( actual ) )
+			throw new IOException( "Checksum mismatch for " + url + ": expected " + expected + ", got " + actual );
+	}
+
+	/**
+	 * @return a new, uniquely named empty file next to the target. Unlike
+	 *         {@link Files#createTempFile}, it gets the default permissions,
+	 *         which it keeps once moved into place.
+	 */
+	static Path temporary( Path target ) throws IOException {
+		Path directory = target.toAbsolutePath().getParent();
+		for ( ;; ) {
+			String name = "." + target.getFileName() + "." + Long.toUnsignedString( ThreadLocalRandom.current().nextLong(), 36 ) + ".tmp";
+			try {
+				return Files.createFile( directory.resolve( name ) );
+			} catch ( FileAlreadyExistsException e ) {
+				// taken, draw another name
+			}
+		}
+	}
+
+	static void moveInto( Path source, Path target ) throws IOException {
+		try {
+			Files.move( source, target, StandardCopyOption.ATOMIC_MOVE );
+		} catch ( AtomicMoveNotSupportedException e ) {
+			Files.move( source, target, StandardCopyOption.REPLACE_EXISTING );
+		}
+	}
+
+	/**
+	 * Reports every byte read to the metrics listener
+	 */
+	private static class CountingChannel implements ReadableByteChannel {
+
+		private final ReadableByteChannel source;
+		private final MetricsListener metrics;
+
+		CountingChannel( ReadableByteChannel source, MetricsListener metrics ) {
+			this.source = source;
+			this.metrics = metrics;
+		}
+
+		@Override
+		public int read( ByteBuffer dst ) throws IOException {
+			int read = source.read( dst );
+			if ( read > 0 ) metrics.bytesDownloaded( read );
+			return read;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return source.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			source.close();
+		}
+	}
+
+	/**
+	 * Feeds every byte read through it into a digest, so the file is verified
+	 * without being read back.
+	 */
+	private static class DigestChannel implements ReadableByteChannel {
+
+		private final ReadableByteChannel source;
+		private final MessageDigest digest;
+
+		DigestChannel( ReadableByteChannel source, MessageDigest digest ) {
+			this.source = source;
+			this.digest = digest;
+		}
+
+		@Override
+		public int read( ByteBuffer dst ) throws IOException {
+			int start = dst.position();
+			int read = source.read( dst );
+			if ( read > 0 ) {
+				ByteBuffer view = dst.duplicate();
+				( ( Buffer ) view ).flip().position( start );
+				digest.update( view );
+			}
+			return read;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return source.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			source.close();
+		}
+	}
+
+	private static class RangeNotServedException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		RangeNotServedException( String message ) {
+			super( message );
+		}
+	}
+
+	/**
+	 * The ETag and Last-Modified date of a download, recorded along with the
+	 * size and modification time of the file so that a local change is
+	 * noticed.
+	 */
+	private static class Validators {
+
+		private final String etag;
+		private final String lastModified;
+
+		Validators( Response response ) {
+			etag = response.getHeaderString( HttpHeaders.ETAG );
+			lastModified = response.getHeaderString( HttpHeaders.LAST_MODIFIED );
+		}
+
+		private Validators( Properties record ) {
+			etag = record.getProperty( "etag" );
+			lastModified = record.getProperty( "lastModified" );
+		}
+
+		void addTo( Invocation.Builder request ) {
+			if ( etag != null ) request.header( HttpHeaders.IF_NONE_MATCH, etag );
+			if ( lastModified != null ) request.header( HttpHeaders.IF_MODIFIED_SINCE, lastModified );
+		}
+
+		void write( Path file ) throws IOException {
+			Path record = record( file );
+			if ( etag == null && lastModified == null ) {
+				Files.deleteIfExists( record );
+				return;
+			}
+			Properties properties = new Properties();
+			if ( etag != null ) properties.setProperty( "etag", etag );
+			if ( lastModified != null ) properties.setProperty( "lastModified", lastModified );
+			properties.setProperty( "size", Long.toString( Files.size( file ) ) );
+			properties.setProperty( "modified", Long.toString( Files.getLastModifiedTime( file ).toMillis() ) );
+			try (OutputStream out = Files.newOutputStream( record )) {
+				properties.store( out, null );
+			}
+		}
+
+		/**
+		 * @return the validators of the file, or null if there are none or
+		 *         the file changed since they were recorded
+		 */
+		static Validators read( Path file ) throws IOException {
+			Path record = record( file );
+			if ( !Files.isRegularFile( file ) || !Files.isRegularFile( record ) ) return null;
+			Properties properties = new Properties();
+			try (InputStream in = Files.newInputStream( record )) {
+				properties.load( in );
+			}
+			if ( !Long.toString( Files.size( file ) ).equals( properties.getProperty( "size" ) ) ||
+					!Long.toString( Files.getLastModifiedTime( file ).toMillis() ).equals( properties.getProperty( "modified" ) ) )
+				return null;
+			Validators validators = new Validators( properties );
+			return ( validators.etag == null && validators.lastModified == null ) ? null : validators;
+		}
+
+		private static Path record( Path file ) {
+			return file.resolveSibling( "." + file.getFileName() + ".validators" );
+		}
+	}
+}
@@ -0,0 +1,301 @@
+package org.scijava.nexus.v1.client;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Merges the results of one search run against several repositories.
+ *
+ * Each repository is drained by its own task, so their pages are requested
+ * concurrently, and each task runs at most {@code buffer} items ahead of the
+ * consumer. Without an order, items are handed out as they arrive from any
+ * repository. With one, every repository is expected to return its items in
+ * that order already, and the repositories are merged k-way: the least of
+ * their next items is handed out, ties going to the repository given first.
+ * Closing the iterator cancels the tasks. If a repository cannot be searched,
+ * whatever the error, the consumer is told once it gets to that repository's
+ * failure.
+ *
+ * A repository whose task has not started by the time the consumer waits on
+ * it, because the executor has no thread free, is read by the consumer
+ * itself, so that the merge makes progress on an executor of any size.
+ *
+ * @author agent
+ */
+class FanOut< T > implements Iterator< T >, AutoCloseable {
+
+	private static final Object END = new Object();
+
+	/** Milliseconds the consumer waits for a task to start before reading its repository itself */
+	private static final long CLAIM_AFTER = 10;
+
+	private static final int PENDING = 0;
+	private static final int TASK = 1;
+	private static final int CONSUMER = 2;
+
+	private final Comparator< ? super T > order;
+	private final List< Feed > feeds = new ArrayList<>();
+	/** Items from all repositories in arrival order, when unordered */
+	private final BlockingQueue< Object > arrivals;
+	/** The next item of every repository not exhausted, when ordered */
+	private PriorityQueue< Head > heads;
+	/** The repositories read by the consumer, when unordered */
+	private final List< Feed > claimed = new ArrayList<>();
+	private int running;
+	private Object next;
+	private volatile boolean cancelled;
+
+	/**
+	 *
+	 * @param sources
+	 *            - the results of every repository, by repository name
+	 * @param order
+	 *            - the order of the results of each repository, or null
+	 * @param buffer
+	 *            - maximum number of items fetched ahead, per repository
+	 * @param executor
+	 *            - runs the draining tasks
+	 */
+	FanOut( Map< String, ? extends Iterator< ? extends T > > sources, Comparator< ? super T > order, int buffer, ExecutorService executor ) {
+		this.order = order;
+		arrivals = ( order == null ) ? new ArrayBlockingQueue<>( Math.max( 1, buffer * sources.size() ) ) : null;
+		for ( Map.Entry< String, ? extends Iterator< ? extends T > > source : sources.entrySet() ) {
+			BlockingQueue< Object > queue = ( order == null ) ? arrivals : new ArrayBlockingQueue<>( buffer );
+			feeds.add( new Feed( feeds.size(), source.getKey(), source.getValue(), queue ) );
+		}
+		running = feeds.size();
+		for ( Feed feed : feeds )
+			feed.task = executor.submit( () -> drain( feed ) );
+	}
+
+	@Override
+	public boolean hasNext() {
+		if ( next == null && !cancelled ) next = ( order == null ) ? nextArrival() : nextInOrder();
+		return next != null;
+	}
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public T next() {
+		if ( !hasNext() ) throw new NoSuchElementException();
+		T item = ( T ) next;
+		next = null;
+		return item;
+	}
+
+	@Override
+	public void close() {
+		cancelled = true;
+		for ( Feed feed : feeds ) {
+			if ( feed.task != null ) feed.task.cancel( true );
+			feed.queue.clear();
+			if ( feed.state.compareAndSet( PENDING, CONSUMER ) || feed.state.get() == CONSUMER ) closeSource( feed );
+		}
+	}
+
+	/**
+	 * @return a sequential stream over the remaining items, closing this
+	 *         iterator when the stream is closed
+	 */
+	Stream< T > stream() {
+		Spliterator< T > spliterator = Spliterators.spliteratorUnknownSize( this, Spliterator.NONNULL );
+		return StreamSupport.stream( spliterator, false ).onClose( this::close );
+	}
+
+	private Object nextArrival() {
+		while ( running > 0 ) {
+			Object item = poll( arrivals, 0 );
+			if ( item == null && !claimed.isEmpty() ) {
+				item = read( claimed.get( 0 ) );
+				if ( item == END ) claimed.remove( 0 );
+			}
+			if ( item == null ) {
+				item = poll( arrivals, CLAIM_AFTER );
+				if ( item == null ) {
+					for ( Feed feed : feeds ) {
+						if ( feed.state.compareAndSet( PENDING, CONSUMER ) ) claimed.add( feed );
+					}
+					continue;
+				}
+			}
+			if ( item == END ) running--;
+			else return item;
+		}
+		return null;
+	}
+
+	@SuppressWarnings( "unchecked" )
+	private Object nextInOrder() {
+		if ( heads == null ) {
+			heads = new PriorityQueue<>( Math.max( 1, feeds.size() ), ( a, b ) -> {
+				int c = order.compare( ( T ) a.item, ( T ) b.item );
+				return ( c != 0 ) ? c : Integer.compare( a.feed.index, b.feed.index );
+			} );
+			for ( Feed feed : feeds )
+				advance( feed );
+		}
+		Head least = heads.poll();
+		if ( least == null ) return null;
+		advance( least.feed );
+		return least.item;
+	}
+
+	private void advance( Feed feed ) {
+		Object item = null;
+		while ( item == null ) {
+			if ( feed.state.get() == CONSUMER ) {
+				item = read( feed );
+			} else {
+				item = poll( feed.queue, CLAIM_AFTER );
+				if ( item == null ) feed.state.compareAndSet( PENDING, CONSUMER );
+			}
+		}
+		if ( item != END ) heads.add( new Head( item, feed ) );
+	}
+
+	/**
+	 * @return an item, {@link #END}, or null if none came within the timeout
+	 * @throws UncheckedNexusReSTClientException
+	 *             if a repository could not be searched, or interrupted
+	 */
+	private Object poll( BlockingQueue< Object > queue, long millis ) {
+		Object item;
+		try {
+			item = queue.poll( millis, TimeUnit.MILLISECONDS );
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new UncheckedNexusReSTClientException( new NexusReSTClientException( e ) );
+		}
+		if ( item instanceof Failure ) {
+			Failure failure = ( Failure ) item;
+			throw failed( failure.repository, failure.error );
+		}
+		return item;
+	}
+
+	/**
+	 * Read the next item of a repository in the consumer's thread, instead of
+	 * its task
+	 *
+	 * @return an item or {@link #END}
+	 */
+	private Object read( Feed feed ) {
+		try {
+			if ( feed.source.hasNext() ) return feed.source.next();
+		} catch ( UncheckedNexusReSTClientException e ) {
+			throw failed( feed.repository, e.getCause() );
+		} catch ( RuntimeException e ) {
+			throw failed( feed.repository, new NexusReSTClientException( e ) );
+		}
+		closeSource( feed );
+		return END;
+	}
+
+	private UncheckedNexusReSTClientException failed( String repository, NexusReSTClientException error ) {
+		close();
+		return new UncheckedNexusReSTClientException( "Search of repository " + repository + " failed", error );
+	}
+
+	private static void closeSource( FanOut< ? >.Feed feed ) {
+		if ( feed.source instanceof PageIterator ) ( ( PageIterator< ? > ) feed.source ).close();
+	}
+
+	/**
+	 * Hand the items of one repository to the consumer, then {@link #END} or
+	 * the failure, so that the consumer never waits on a task that is gone
+	 */
+	private void drain( Feed feed ) {
+		// unless the consumer got to it first
+		if ( !feed.state.compareAndSet( PENDING, TASK ) ) return;
+		Object last = END;
+		boolean interrupted = false;
+		try {
+			while ( feed.source.hasNext() ) {
+				if ( !enqueue( feed.queue, feed.source.next() ) ) return;
+			}
+		} catch ( UncheckedNexusReSTClientException e ) {
+			last = new Failure( feed.repository, e.getCause() );
+		} catch ( InterruptedException e ) {
+			// the consumer closed the iterator, or the executor is shut down
+			interrupted = true;
+			last = new Failure( feed.repository, new NexusReSTClientException( e ) );
+		} catch ( Throwable e ) {
+			last = new Failure( feed.repository, new NexusReSTClientException( e ) );
+		} finally {
+			closeSource( feed );
+			try {
+				enqueue( feed.queue, last );
+			} catch ( InterruptedException e ) {
+				interrupted = true;
+			}
+			if ( interrupted ) Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Wait for room in the queue, giving up once the iterator is closed even
+	 * if the interrupt was swallowed by the transport.
+	 */
+	private boolean enqueue( BlockingQueue< Object > queue, Object item ) throws InterruptedException {
+		while ( !cancelled ) {
+			if ( queue.offer( item, 100, TimeUnit.MILLISECONDS ) ) return true;
+		}
+		return false;
+	}
+
+	private class Feed {
+
+		final int index;
+		final String repository;
+		final Iterator< ? extends T > source;
+		final BlockingQueue< Object > queue;
+		/** Whether its task or the consumer reads the repository */
+		final AtomicInteger state = new AtomicInteger( PENDING );
+		Future< ? > task;
+
+		Feed( int index, String repository, Iterator< ? extends T > source, BlockingQueue< Object > queue ) {
+			this.index = index;
+			this.repository = repository;
+			this.source = source;
+			this.queue = queue;
+		}
+	}
+
+	private class Head {
+
+		final Object item;
+		final Feed feed;
+
+		Head( Object item, Feed feed ) {
+			this.item = item;
+			this.feed = feed;
+		}
+	}
+
+	private static class Failure {
+
+		final String repository;
+		final NexusReSTClientException error;
+
+		Failure( String repository, NexusReSTClientException error ) {
+			this.repository = repository;
+			this.error = error;
+		}
+	}
+}
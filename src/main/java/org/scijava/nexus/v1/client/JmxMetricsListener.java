@@ -0,0 +1,233 @@
+package org.scijava.nexus.v1.client;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * A {@link MetricsListener} keeping running totals, readable over JMX once
+ * {@link #register(String) registered}: per endpoint request counts and
+ * latency histograms, error and retry counts by HTTP status, page and item
+ * counts, bytes transferred and the last reported state of the connection
+ * pool.
+ *
+ * The counters are preallocated, so recording a measurement allocates
+ * nothing. The same listener may be shared by several clients: their counts
+ * then add up, but the state of the connection pool is that of whichever
+ * client reported last, as each client has its own pool.
+ *
+ * @author agent
+ */
+public class JmxMetricsListener implements MetricsListener, NexusClientMetricsMXBean {
+
+	private static final long[] BUCKETS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000 };
+	private static final Endpoint[] ENDPOINTS = Endpoint.values();
+	private static final int STATUSES = 600;
+
+	private final long[] bucketNanos = new long[ BUCKETS.length ];
+	private final AtomicLongArray histograms = new AtomicLongArray( ENDPOINTS.length * ( BUCKETS.length + 1 ) );
+	private final AtomicLongArray requests = new AtomicLongArray( ENDPOINTS.length );
+	private final AtomicLongArray latency = new AtomicLongArray( ENDPOINTS.length );
+	private final AtomicLongArray errors = new AtomicLongArray( STATUSES );
+	private final AtomicLongArray retries = new AtomicLongArray( STATUSES );
+	private final AtomicLongArray pages = new AtomicLongArray( ENDPOINTS.length );
+	private final AtomicLongArray items = new AtomicLongArray( ENDPOINTS.length );
+	private final AtomicLongArray listings = new AtomicLongArray( ENDPOINTS.length );
+	private final LongAdder downloaded = new LongAdder();
+	private final LongAdder uploaded = new LongAdder();
+	private final LongAdder circuitOpenings = new LongAdder();
+	private volatile int leased;
+	private volatile int pending;
+	private volatile int available;
+	private volatile int max;
+
+	public JmxMetricsListener() {
+		for ( int i = 0; i < BUCKETS.length; i++ )
+			bucketNanos[ i ] = TimeUnit.MILLISECONDS.toNanos( BUCKETS[ i ] );
+	}
+
+	/**
+	 * Register with the platform MBean server, as
+	 * {@code org.scijava.nexus:type=NexusClient,name=<name>}
+	 *
+	 * @param name
+	 *            - tells this listener apart from others
+	 * @return the name registered, to unregister it
+	 * @throws JMException
+	 *             if the name is taken
+	 */
+	public ObjectName register( String name ) throws JMException {
+		ObjectName objectName = new ObjectName( "org.scijava.nexus:type=NexusClient,name=" + ObjectName.quote( name ) );
+		ManagementFactory.getPlatformMBeanServer().registerMBean( this, objectName );
+		return objectName;
+	}
+
+	@Override
+	public void requestCompleted( Endpoint endpoint, String method, int status, long nanos ) {
+		int e = endpoint.ordinal();
+		int bucket = 0;
+		while ( bucket < bucketNanos.length && nanos > bucketNanos[ bucket ] )
+			bucket++;
+		histograms.incrementAndGet( e * ( BUCKETS.length + 1 ) + bucket );
+		requests.incrementAndGet( e );
+		latency.addAndGet( e, nanos );
+		if ( ( status == 0 || status >= 400 ) && status < STATUSES ) errors.incrementAndGet( status );
+	}
+
+	@Override
+	public void pageFetched( Endpoint endpoint, int items ) {
+		pages.incrementAndGet( endpoint.ordinal() );
+		this.items.addAndGet( endpoint.ordinal(), items );
+	}
+
+	@Override
+	public void listingCompleted( Endpoint endpoint, int pages, long items ) {
+		listings.incrementAndGet( endpoint.ordinal() );
+	}
+
+	@Override
+	public void bytesDownloaded( long bytes ) {
+		downloaded.add( bytes );
+	}
+
+	@Override
+	public void bytesUploaded( long bytes ) {
+		uploaded.add( bytes );
+	}
+
+	@Override
+	public void retried( int status ) {
+		if ( status >= 0 && status < STATUSES ) retries.incrementAndGet( status );
+	}
+
+	@Override
+	public void circuitOpened() {
+		circuitOpenings.increment();
+	}
+
+	@Override
+	public void connectionPool( int leased, int pending, int available, int max ) {
+		this.leased = leased;
+		this.pending = pending;
+		this.available = available;
+		this.max = max;
+	}
+
+	@Override
+	public long[] getLatencyBucketsMillis() {
+		return BUCKETS.clone();
+	}
+
+	@Override
+	public Map< String, long[] > getLatencyHistograms() {
+		Map< String, long[] > result = new LinkedHashMap<>();
+		for ( Endpoint endpoint : ENDPOINTS ) {
+			long[] histogram = new long[ BUCKETS.length + 1 ];
+			for ( int i = 0; i < histogram.length; i++ )
+				histogram[ i ] = histograms.get( endpoint.ordinal() * histogram.length + i );
+			result.put( endpoint.name(), histogram );
+		}
+		return result;
+	}
+
+	@Override
+	public Map< String, Long > getRequestCounts() {
+		return byEndpoint( requests );
+	}
+
+	@Override
+	public Map< String, Double > getMeanLatencyMillis() {
+		Map< String, Double > result = new LinkedHashMap<>();
+		for ( Endpoint endpoint : ENDPOINTS ) {
+			long count = requests.get( endpoint.ordinal() );
+			result.put( endpoint.name(), ( count == 0 ) ? 0 : latency.get( endpoint.ordinal() ) / 1e6 / count );
+		}
+		return result;
+	}
+
+	@Override
+	public Map< Integer, Long > getErrorCounts() {
+		return byStatus( errors );
+	}
+
+	@Override
+	public Map< Integer, Long > getRetryCounts() {
+		return byStatus( retries );
+	}
+
+	@Override
+	public long getCircuitOpenings() {
+		return circuitOpenings.sum();
+	}
+
+	@Override
+	public Map< String, Long > getPageCounts() {
+		return byEndpoint( pages );
+	}
+
+	@Override
+	public Map< String, Long > getItemCounts() {
+		return byEndpoint( items );
+	}
+
+	@Override
+	public Map< String, Long > getCompletedListings() {
+		return byEndpoint( listings );
+	}
+
+	@Override
+	public long getBytesDownloaded() {
+		return downloaded.sum();
+	}
+
+	@Override
+	public long getBytesUploaded() {
+		return uploaded.sum();
+	}
+
+	@Override
+	public int getLeasedConnections() {
+		return leased;
+	}
+
+	@Override
+	public int getPendingConnections() {
+		return pending;
+	}
+
+	@Override
+	public int getAvailableConnections() {
+		return available;
+	}
+
+	@Override
+	public int getMaxConnections() {
+		return max;
+	}
+
+	private static Map< String, Long > byEndpoint( AtomicLongArray counts ) {
+		Map< String, Long > result = new LinkedHashMap<>();
+		for ( Endpoint endpoint : ENDPOINTS )
+			result.put( endpoint.name(), counts.get( endpoint.ordinal() ) );
+		return result;
+	}
+
+	/**
+	 * @return the statuses counted at least once
+	 */
+	private static Map< Integer, Long > byStatus( AtomicLongArray counts ) {
+		Map< Integer, Long > result = new TreeMap<>();
+		for ( int status = 0; status < counts.length(); status++ ) {
+			long count = counts.get( status );
+			if ( count > 0 ) result.put( status, count );
+		}
+		return result;
+	}
+}
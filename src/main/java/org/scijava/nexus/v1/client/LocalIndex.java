@@ -0,0 +1,85 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.scijava.nexus.v1.client.domain.Component;
+
+/**
+ * The {@link RepositoryIndex repository indexes} kept in a directory, one
+ * file per indexed repository.
+ *
+ * An index is mapped the first time its repository is queried and stays
+ * mapped. Until then, the file is looked for again on every query, so an
+ * index written by another client is picked up. A refresh writes the new index next to the old one and swaps it in,
+ * so queries keep being answered from the previous index meanwhile.
+ *
+ * @author agent
+ */
+class LocalIndex {
+
+	private static final String SUFFIX = ".index";
+
+	private final Path root;
+	private final ConcurrentHashMap< String, RepositoryIndex > indexes = new ConcurrentHashMap<>();
+
+	LocalIndex( String directory ) {
+		root = Paths.get( directory ).toAbsolutePath().normalize();
+	}
+
+	/**
+	 * @return the index of the repository, or null if it is not indexed
+	 */
+	RepositoryIndex get( String repository ) {
+		// a miss maps nothing, so it is not remembered
+		return indexes.computeIfAbsent( repository, name -> {
+			Path file = file( name );
+			try {
+				return Files.isRegularFile( file ) ? RepositoryIndex.open( name, file ) : null;
+			} catch ( IOException e ) {
+				// unreadable, the server answers until it is rewritten
+				return null;
+			}
+		} );
+	}
+
+	/**
+	 * Replace the index of the repository, unless the listing is the same as
+	 * the one it was built from.
+	 *
+	 * @param components
+	 *            - the complete listing of the repository
+	 * @return true if the index was rewritten
+	 */
+	synchronized boolean refresh( String repository, List< Component > components ) throws IOException {
+		RepositoryIndex current = get( repository );
+		if ( current != null && Arrays.equals( current.getFingerprint(), RepositoryIndex.fingerprint( components ) ) ) return false;
+		Files.createDirectories( root );
+		Path file = file( repository );
+		Path tmp = root.resolve( "." + file.getFileName() + "." + UUID.randomUUID() + ".tmp" );
+		try {
+			RepositoryIndex.write( tmp, components );
+			Downloader.moveInto( tmp, file );
+		} finally {
+			Files.deleteIfExists( tmp );
+		}
+		indexes.put( repository, RepositoryIndex.open( repository, file ) );
+		return true;
+	}
+
+	private Path file( String repository ) {
+		try {
+			return root.resolve( URLEncoder.encode( repository, "UTF-8" ) + SUFFIX );
+		} catch ( UnsupportedEncodingException e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package org.scijava.nexus.v1.client;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link MetadataCache} holding at most a given number of entries, evicting
+ * the least recently used first, each of which expires after the time to live
+ * of its type. Expired entries are kept until evicted, so that they can be
+ * revalidated.
+ *
+ * Hits and misses are counted per type, to tune the sizes and lifetimes.
+ *
+ * @author agent
+ */
+public class LruMetadataCache implements MetadataCache {
+
+	private final int maxEntries;
+	private final Map< Type, Long > ttl = new EnumMap<>( Type.class );
+	/** In order of use, the least recently used first */
+	private final LinkedHashMap< Key, Entry > entries;
+	private final AtomicLongArray hits = new AtomicLongArray( Type.values().length );
+	private final AtomicLongArray misses = new AtomicLongArray( Type.values().length );
+
+	/**
+	 * Cache of 1000 entries. Repository listings live for 10 minutes, all
+	 * other metadata for 1 minute.
+	 */
+	public LruMetadataCache() {
+		this( 1000 );
+	}
+
+	/**
+	 *
+	 * @param maxEntries
+	 *            - number of entries beyond which the least recently used is
+	 *            evicted
+	 */
+	public LruMetadataCache( int maxEntries ) {
+		this.maxEntries = maxEntries;
+		entries = new LinkedHashMap< Key, Entry >() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry< Key, Entry > eldest ) {
+				return size() > LruMetadataCache.this.maxEntries;
+			}
+		};
+		for ( Type type : Type.values() )
+			ttl.put( type, TimeUnit.MINUTES.toMillis( 1 ) );
+		ttl.put( Type.REPOSITORIES, TimeUnit.MINUTES.toMillis( 10 ) );
+	}
+
+	/**
+	 *
+	 * @param type
+	 *            - the kind of metadata
+	 * @param millis
+	 *            - how long entries of this type stay valid, in milliseconds
+	 */
+	public void setTimeToLive( Type type, long millis ) {
+		synchronized ( entries ) {
+			ttl.put( type, millis );
+		}
+	}
+
+	public long getTimeToLive( Type type ) {
+		synchronized ( entries ) {
+			return ttl.get( type );
+		}
+	}
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public < T > CachedMetadata< T > get( Type type, String key ) {
+		Entry entry;
+		synchronized ( entries ) {
+			Key k = new Key( type, key );
+			entry = entries.remove( k );
+			// a use moves the entry last
+			if ( entry != null ) entries.put( k, entry );
+		}
+		if ( entry != null && entry.expires - System.nanoTime() < 0 ) entry = null;
+		( entry == null ? misses : hits ).incrementAndGet( type.ordinal() );
+		return ( entry == null ) ? null : ( CachedMetadata< T > ) entry.value;
+	}
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public < T > CachedMetadata< T > getStale( Type type, String key ) {
+		// only a lookup of validators, so not a use
+		synchronized ( entries ) {
+			Entry entry = entries.get( new Key( type, key ) );
+			return ( entry == null ) ? null : ( CachedMetadata< T > ) entry.value;
+		}
+	}
+
+	@Override
+	public void put( Type type, String key, CachedMetadata< ? > value ) {
+		synchronized ( entries ) {
+			long expires = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( ttl.get( type ) );
+			Key k = new Key( type, key );
+			entries.remove( k );
+			entries.put( k, new Entry( value, expires ) );
+		}
+	}
+
+	@Override
+	public void invalidate( Type type, String key ) {
+		synchronized ( entries ) {
+			entries.remove( new Key( type, key ) );
+		}
+	}
+
+	@Override
+	public void invalidateAll( Type type ) {
+		synchronized ( entries ) {
+			for ( Iterator< Key > keys = entries.keySet().iterator(); keys.hasNext(); ) {
+				if ( keys.next().type == type ) keys.remove();
+			}
+		}
+	}
+
+	public int size() {
+		synchronized ( entries ) {
+			return entries.size();
+		}
+	}
+
+	public long getHitCount( Type type ) {
+		return hits.get( type.ordinal() );
+	}
+
+	public long getMissCount( Type type ) {
+		return misses.get( type.ordinal() );
+	}
+
+	public long getHitCount() {
+		long count = 0;
+		for ( Type type : Type.values() )
+			count += getHitCount( type );
+		return count;
+	}
+
+	public long getMissCount() {
+		long count = 0;
+		for ( Type type : Type.values() )
+			count += getMissCount( type );
+		return count;
+	}
+
+	private static class Key {
+
+		final Type type;
+		final String key;
+
+		Key( Type type, String key ) {
+			this.type = type;
+			this.key = key;
+		}
+
+		@Override
+		public boolean equals( Object o ) {
+			if ( !( o instanceof Key ) ) return false;
+			Key other = ( Key ) o;
+			return type == other.type && key.equals( other.key );
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * type.hashCode() + key.hashCode();
+		}
+	}
+
+	private static class Entry {
+
+		final CachedMetadata< ? > value;
+		final long expires;
+
+		Entry( CachedMetadata< ? > value, long expires ) {
+			this.value = value;
+			this.expires = expires;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package org.scijava.nexus.v1.client;
+
+/**
+ * In-memory cache of the metadata a {@link NexusClient} fetches, set through
+ * {@link NexusClientConfig#setMetadataCache(MetadataCache)}.
+ *
+ * Assets and components are keyed by their ID, repository listings by
+ * nothing, and search or listing results by the query they answer. Each is
+ * held as a {@link CachedMetadata}, with the validators of the response it
+ * came from. The cached objects are shared between callers and should not
+ * be modified.
+ * Expired entries may be kept, for the client to revalidate them with a
+ * conditional request instead of fetching them again.
+ * Implementations must be thread-safe; {@link LruMetadataCache} is the one
+ * provided.
+ *
+ * @author agent
+ */
+public interface MetadataCache {
+
+	enum Type {
+		REPOSITORIES, ASSET, COMPONENT, QUERY
+	}
+
+	/**
+	 *
+	 * @param type
+	 *            - the kind of metadata
+	 * @param key
+	 *            - the ID or query it is cached under
+	 * @return the cache entry, or null if absent or expired
+	 */
+	< T > CachedMetadata< T > get( Type type, String key );
+
+	/**
+	 * Look up an entry even if it has expired, to revalidate it.
+	 *
+	 * @return the cache entry, or null if absent; by default, expired
+	 *         entries are not kept
+	 */
+	default < T > CachedMetadata< T > getStale( Type type, String key ) {
+		return get( type, key );
+	}
+
+	/**
+	 *
+	 * @param type
+	 *            - the kind of metadata
+	 * @param key
+	 *            - the ID or query to cache it under
+	 * @param entry
+	 *            - the metadata and its validators
+	 */
+	void put( Type type, String key, CachedMetadata< ? > entry );
+
+	/**
+	 * Drop a single entry.
+	 */
+	void invalidate( Type type, String key );
+
+	/**
+	 * Drop every entry of the given kind.
+	 */
+	void invalidateAll( Type type );
+}
@@ -0,0 +1,153 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.Response;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.jboss.resteasy.client.jaxrs.engines.ClientHttpEngineBuilder43;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.scijava.nexus.v1.client.MetricsListener.Endpoint;
+
+/**
+ * The engine of a {@link NexusClient} with a {@link MetricsListener}: reports
+ * the latency and status of every request it sends, followed by the state of
+ * the connection pool.
+ *
+ * RESTEasy expects the engine of its default kind, so this extends it rather
+ * than wrapping it, and is built the way RESTEasy builds its own.
+ *
+ * @author agent
+ */
+class MeteredEngine extends ApacheHttpClient43Engine {
+
+	private static final String API = "/service/rest/v1/";
+
+	private final ConnPoolControl< ? > pool;
+	private final MetricsListener metrics;
+
+	private MeteredEngine( HttpClient httpClient, ConnPoolControl< ? > pool, MetricsListener metrics ) {
+		super( httpClient, true );
+		this.pool = pool;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return an engine configured by the builder, as RESTEasy would build
+	 *         it, reporting to the listener
+	 */
+	static MeteredEngine build( ResteasyClientBuilder builder, MetricsListener metrics ) {
+		return ( MeteredEngine ) new ClientHttpEngineBuilder43() {
+
+			@Override
+			protected ClientHttpEngine createEngine( HttpClientConnectionManager cm, RequestConfig.Builder rcBuilder, HttpHost defaultProxy, int responseBufferSize,
+					HostnameVerifier verifier, SSLContext theContext ) {
+				HttpClient httpClient = HttpClientBuilder.create()
+						.setConnectionManager( cm )
+						.setDefaultRequestConfig( rcBuilder.build() )
+						.setProxy( defaultProxy )
+						.disableContentCompression()
+						.build();
+				MeteredEngine engine = new MeteredEngine( httpClient, ( cm instanceof ConnPoolControl ) ? ( ConnPoolControl< ? > ) cm : null, metrics );
+				engine.setResponseBufferSize( responseBufferSize );
+				engine.setHostnameVerifier( verifier );
+				engine.setSslContext( theContext );
+				return engine;
+			}
+		}.resteasyClientBuilder( builder ).build();
+	}
+
+	/**
+	 * @return the connection pool of the engine, or null
+	 */
+	ConnPoolControl< ? > getPool() {
+		return pool;
+	}
+
+	@Override
+	public Response invoke( Invocation request ) {
+		ClientInvocation invocation = ( ClientInvocation ) request;
+		long start = System.nanoTime();
+		int status = 0;
+		try {
+			Response response = super.invoke( request );
+			status = response.getStatus();
+			return response;
+		} finally {
+			String method = invocation.getMethod();
+			metrics.requestCompleted( endpoint( method, invocation.getUri().getRawPath() ), method, status, System.nanoTime() - start );
+			reportPool( pool, metrics );
+		}
+	}
+
+	/**
+	 * @return the endpoint a request is for, going by its method and path;
+	 *         any path outside the REST API is a download
+	 */
+	static Endpoint endpoint( String method, String path ) {
+		int api = ( path == null ) ? -1 : path.indexOf( API );
+		if ( api < 0 ) return Endpoint.DOWNLOAD;
+		int from = api + API.length();
+		if ( is( path, from, "search/assets/download" ) ) return Endpoint.SEARCH_AND_DOWNLOAD;
+		if ( is( path, from, "search/assets" ) ) return Endpoint.SEARCH_ASSETS;
+		if ( is( path, from, "search" ) ) return Endpoint.SEARCH_COMPONENTS;
+		if ( is( path, from, "assets" ) ) return Endpoint.LIST_ASSETS;
+		if ( path.startsWith( "assets/", from ) ) return Endpoint.ASSET;
+		if ( is( path, from, "components" ) ) return "POST".equals( method ) ? Endpoint.UPLOAD : Endpoint.LIST_COMPONENTS;
+		if ( path.startsWith( "components/", from ) ) return Endpoint.COMPONENT;
+		return Endpoint.REPOSITORIES;
+	}
+
+	static void reportPool( ConnPoolControl< ? > pool, MetricsListener metrics ) {
+		if ( pool == null ) return;
+		PoolStats stats = pool.getTotalStats();
+		metrics.connectionPool( stats.getLeased(), stats.getPending(), stats.getAvailable(), stats.getMax() );
+	}
+
+	/**
+	 * @return an entity reporting every byte of the request body written to
+	 *         the listener
+	 */
+	static HttpEntity counting( HttpEntity entity, MetricsListener metrics ) {
+		return new HttpEntityWrapper( entity ) {
+
+			@Override
+			public void writeTo( OutputStream out ) throws IOException {
+				super.writeTo( new FilterOutputStream( out ) {
+
+					@Override
+					public void write( int b ) throws IOException {
+						out.write( b );
+						metrics.bytesUploaded( 1 );
+					}
+
+					@Override
+					public void write( byte[] b, int off, int len ) throws IOException {
+						out.write( b, off, len );
+						metrics.bytesUploaded( len );
+					}
+				} );
+			}
+		};
+	}
+
+	private static boolean is( String path, int from, String name ) {
+		return path.length() == from + name.length() && path.startsWith( name, from );
+	}
+}
@@ -0,0 +1,107 @@
+package org.scijava.nexus.v1.client;
+
+/**
+ * Receives measurements of what a {@link NexusClient} does, set through
+ * {@link NexusClientConfig#setMetricsListener(MetricsListener)}, e.g. to feed
+ * a metrics library. {@link JmxMetricsListener} is the one provided.
+ *
+ * Every method does nothing by default, so an implementation only overrides
+ * those it needs. The methods are called on the threads doing the requests,
+ * often concurrently, and should return quickly without throwing. No
+ * argument is allocated for the call, so a listener that does not allocate
+ * adds no garbage. Without a listener, the client takes no measurements at
+ * all.
+ *
+ * @author agent
+ */
+public interface MetricsListener {
+
+	/** Reports nothing */
+	MetricsListener NONE = new MetricsListener() {};
+
+	/**
+	 * What a request was for, going by its path
+	 */
+	enum Endpoint {
+		REPOSITORIES, SEARCH_ASSETS, SEARCH_AND_DOWNLOAD, SEARCH_COMPONENTS, LIST_ASSETS, LIST_COMPONENTS, ASSET, COMPONENT, UPLOAD, DOWNLOAD
+	}
+
+	/**
+	 * A request was answered, or failed without an answer.
+	 *
+	 * @param endpoint
+	 *            - what the request was for
+	 * @param method
+	 *            - the HTTP method
+	 * @param status
+	 *            - the HTTP status, 0 if no response was received
+	 * @param nanos
+	 *            - time until the response headers were received, or until
+	 *            the failure
+	 */
+	default void requestCompleted( Endpoint endpoint, String method, int status, long nanos ) {}
+
+	/**
+	 * A page of a listing or search was decoded.
+	 *
+	 * @param endpoint
+	 *            - the paginated endpoint
+	 * @param items
+	 *            - number of items in the page
+	 */
+	default void pageFetched( Endpoint endpoint, int items ) {}
+
+	/**
+	 * A listing or search went through its last page. Not reported for one
+	 * closed, or failing, before its end.
+	 *
+	 * @param endpoint
+	 *            - the paginated endpoint
+	 * @param pages
+	 *            - number of pages requested
+	 * @param items
+	 *            - number of items listed
+	 */
+	default void listingCompleted( Endpoint endpoint, int pages, long items ) {}
+
+	/**
+	 * @param bytes
+	 *            - number of bytes of asset contents just received
+	 */
+	default void bytesDownloaded( long bytes ) {}
+
+	/**
+	 * @param bytes
+	 *            - number of bytes of an upload request body just sent
+	 */
+	default void bytesUploaded( long bytes ) {}
+
+	/**
+	 * A request failed for a transient reason and will be sent again, see
+	 * {@link RetryPolicy}.
+	 *
+	 * @param status
+	 *            - the HTTP status of the failure, 0 for a connection error
+	 */
+	default void retried( int status ) {}
+
+	/**
+	 * The circuit breaker of the {@link RetryPolicy} opened: requests fail
+	 * without being sent for a while.
+	 */
+	default void circuitOpened() {}
+
+	/**
+	 * The state of the connection pool, after every request.
+	 *
+	 * @param leased
+	 *            - connections in use
+	 * @param pending
+	 *            - requests waiting for a connection
+	 * @param available
+	 *            - idle connections kept alive
+	 * @param max
+	 *            - the size of the pool
+	 */
+	default void connectionPool( int leased, int pending, int available, int max ) {}
+}
@@ -0,0 +1,256 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.scijava.nexus.v1.client.BulkDownloadReport.Outcome;
+import org.scijava.nexus.v1.client.BulkDownloadReport.Status;
+import org.scijava.nexus.v1.client.domain.Asset;
+
+/**
+ * Keeps a local directory in sync with a repository.
+ *
+ * The assets are streamed from the repository listing and compared, by
+ * path and checksum, with the local files: only those that are new or
+ * changed go on to be downloaded, in parallel, by a {@link BulkDownloader}.
+ * What each local file was mirrored from is recorded in a manifest, along
+ * with its size and modification time, so that a file untouched since the
+ * last run is known to be up to date without being hashed again.
+ *
+ * @author agent
+ */
+class Mirror {
+
+	static final String MANIFEST = ".nexus-mirror";
+
+	private final NexusClient session;
+	private final Downloader downloader;
+	private final MirrorOptions options;
+	private final Path root;
+	private final Map< String, Entry > manifest = new HashMap<>();
+	private final Set< String > listed = new HashSet<>();
+	private int unchanged;
+	private boolean exhausted;
+
+	Mirror( NexusClient session, Downloader downloader, String directory, MirrorOptions options ) {
+		this.session = session;
+		this.downloader = downloader;
+		this.options = options;
+		root = Paths.get( directory ).toAbsolutePath().normalize();
+	}
+
+	/**
+	 *
+	 * @param repository
+	 *            - the repository to mirror
+	 * @throws NexusReSTClientException
+	 *             if the manifest cannot be read or written, the listing
+	 *             fails, or interrupted
+	 */
+	MirrorReport run( String repository ) throws NexusReSTClientException {
+		try {
+			if ( options.isWriteManifest() ) readManifest();
+		} catch ( IOException e ) {
+			throw new NexusReSTClientException( e );
+		}
+
+		BulkDownloadReport downloads;
+		try (Stream< Asset > assets = session.listAssetsStream( repository )) {
+			Iterator< Asset > changed = assets.filter( asset -> !isUpToDate( asset ) ).iterator();
+			downloads = new BulkDownloader( session, downloader, root.toString(), options ).run( () -> new Iterator< Asset >() {
+
+				@Override
+				public boolean hasNext() {
+					boolean hasNext = changed.hasNext();
+					if ( !hasNext ) exhausted = true;
+					return hasNext;
+				}
+
+				@Override
+				public Asset next() {
+					return changed.next();
+				}
+			} );
+		} catch ( UncheckedNexusReSTClientException e ) {
+			throw e.getCause();
+		}
+
+		for ( Outcome outcome : downloads.getOutcomes() ) {
+			String path = outcome.getAsset().getPath();
+			String signature = signature( outcome.getAsset() );
+			manifest.remove( path );
+			if ( outcome.getStatus() != Status.DOWNLOADED || signature == null ) continue;
+			try {
+				manifest.put( path, new Entry( signature, Files.readAttributes( outcome.getFile().toPath(), BasicFileAttributes.class ) ) );
+			} catch ( IOException e ) {
+				// hashed again next time
+			}
+		}
+
+		List< String > pruned = new ArrayList<>();
+		try {
+			// a partial listing says nothing of the assets not listed yet
+			if ( options.isPrune() && options.isWriteManifest() && exhausted ) prune( pruned );
+			if ( options.isWriteManifest() ) writeManifest();
+		} catch ( IOException e ) {
+			throw new NexusReSTClientException( e );
+		}
+		return new MirrorReport( downloads, unchanged, pruned );
+	}
+
+	/**
+	 * Called in listing order, by the thread submitting the downloads.
+	 *
+	 * @return true if the local copy of the asset is up to date, going by
+	 *         the manifest or else by hashing the file
+	 */
+	private boolean isUpToDate( Asset asset ) {
+		String path = asset.getPath();
+		if ( options.isPrune() ) listed.add( path );
+		ArtifactCache.Key key = ArtifactCache.key( asset.getChecksum() );
+		if ( key == null || path == null ) return false;
+		Path file = root.resolve( path ).normalize();
+		// an unsafe path is left to the downloader to report
+		if ( !file.startsWith( root ) || !Files.isRegularFile( file ) ) return false;
+		String signature = signature( asset );
+		try {
+			BasicFileAttributes attributes = Files.readAttributes( file, BasicFileAttributes.class );
+			Entry known = manifest.get( path );
+			if ( known != null && known.matches( signature, attributes ) ) {
+				unchanged++;
+				return true;
+			}
+			if ( key.digest.equalsIgnoreCase( hash( file, key.algorithm ) ) ) {
+				manifest.put( path, new Entry( signature, attributes ) );
+				unchanged++;
+				return true;
+			}
+		} catch ( IOException e ) {
+			// downloaded again
+		}
+		return false;
+	}
+
+	/**
+	 * Delete the files recorded in the manifest whose asset was not listed,
+	 * along with the directories left empty.
+	 */
+	private void prune( List< String > pruned ) throws IOException {
+		Iterator< String > paths = manifest.keySet().iterator();
+		while ( paths.hasNext() ) {
+			String path = paths.next();
+			if ( listed.contains( path ) ) continue;
+			paths.remove();
+			Path file = root.resolve( path ).normalize();
+			if ( !file.startsWith( root ) || !Files.deleteIfExists( file ) ) continue;
+			pruned.add( path );
+			for ( Path dir = file.getParent(); !dir.equals( root ) && isEmpty( dir ); dir = dir.getParent() )
+				Files.delete( dir );
+		}
+	}
+
+	private static boolean isEmpty( Path dir ) throws IOException {
+		try (Stream< Path > children = Files.list( dir )) {
+			return !children.findAny().isPresent();
+		}
+	}
+
+	private void readManifest() throws IOException {
+		Path file = root.resolve( MANIFEST );
+		if ( !Files.isRegularFile( file ) ) return;
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream( file )) {
+			properties.load( in );
+		}
+		for ( String path : properties.stringPropertyNames() ) {
+			Entry entry = Entry.parse( properties.getProperty( path ) );
+			if ( entry != null ) manifest.put( path, entry );
+		}
+	}
+
+	private void writeManifest() throws IOException {
+		Properties properties = new Properties();
+		for ( Map.Entry< String, Entry > entry : manifest.entrySet() )
+			properties.setProperty( entry.getKey(), entry.getValue().toString() );
+		Files.createDirectories( root );
+		Path tmp = root.resolve( MANIFEST + "." + UUID.randomUUID() + ".tmp" );
+		try {
+			try (OutputStream out = Files.newOutputStream( tmp )) {
+				properties.store( out, null );
+			}
+			Downloader.moveInto( tmp, root.resolve( MANIFEST ) );
+		} finally {
+			Files.deleteIfExists( tmp );
+		}
+	}
+
+	private static String signature( Asset asset ) {
+		ArtifactCache.Key key = ArtifactCache.key( asset.getChecksum() );
+		return ( key == null ) ? null : key.algorithm.name() + ":" + key.digest.toLowerCase();
+	}
+
+	private static String hash( Path file, ChecksumAlgorithm algorithm ) throws IOException {
+		MessageDigest digest = algorithm.newDigest();
+		try (FileChannel channel = FileChannel.open( file )) {
+			Downloader.digestPrefix( channel, channel.size(), digest );
+		}
+		return ChecksumAlgorithm.hex( digest.digest() );
+	}
+
+	/**
+	 * What a local file was mirrored from, and its size and modification time
+	 * at the time, by which a later change is noticed.
+	 */
+	private static class Entry {
+
+		final String signature;
+		final long size;
+		final long modified;
+
+		Entry( String signature, BasicFileAttributes attributes ) {
+			this( signature, attributes.size(), attributes.lastModifiedTime().toMillis() );
+		}
+
+		private Entry( String signature, long size, long modified ) {
+			this.signature = signature;
+			this.size = size;
+			this.modified = modified;
+		}
+
+		boolean matches( String signature, BasicFileAttributes attributes ) {
+			return this.signature.equals( signature ) && size == attributes.size() && modified == attributes.lastModifiedTime().toMillis();
+		}
+
+		static Entry parse( String value ) {
+			String[] fields = value.split( " " );
+			if ( fields.length != 3 ) return null;
+			try {
+				return new Entry( fields[ 0 ], Long.parseLong( fields[ 1 ] ), Long.parseLong( fields[ 2 ] ) );
+			} catch ( NumberFormatException e ) {
+				return null;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return signature + " " + size + " " + modified;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package org.scijava.nexus.v1.client;
+
+/**
+ * Behaviour of a repository mirror, see
+ * {@link NexusClient#mirror(String, String, MirrorOptions)}, on top of the
+ * limits of its downloads.
+ *
+ * @author agent
+ *
+ */
+
+public class MirrorOptions extends BulkDownloadOptions {
+
+	private boolean prune = false;
+	private boolean writeManifest = true;
+
+	public boolean isPrune() {
+		return prune;
+	}
+
+	/**
+	 *
+	 * @param prune
+	 *            - delete the local files of assets that were mirrored before
+	 *            and have since been deleted from the repository. Only files
+	 *            recorded in the manifest are ever deleted, so pruning
+	 *            requires it.
+	 */
+	public void setPrune( boolean prune ) {
+		this.prune = prune;
+	}
+
+	public boolean isWriteManifest() {
+		return writeManifest;
+	}
+
+	/**
+	 *
+	 * @param writeManifest
+	 *            - record the checksum, size and modification time of every
+	 *            mirrored file, so the next run only has to hash the local
+	 *            files that changed since. Without it, every existing file is
+	 *            hashed on each run. On by default.
+	 */
+	public void setWriteManifest( boolean writeManifest ) {
+		this.writeManifest = writeManifest;
+	}
+
+	/**
+	 * @return always true: a mirror keeps the layout of the repository
+	 */
+	@Override
+	public boolean isPreservePaths() {
+		return true;
+	}
+
+	/**
+	 * @param preservePaths
+	 *            - must be true: a mirror keeps the layout of the repository
+	 * @throws IllegalArgumentException
+	 *             if false
+	 */
+	@Override
+	public void setPreservePaths( boolean preservePaths ) {
+		if ( !preservePaths ) throw new IllegalArgumentException( "A mirror always preserves the repository paths" );
+		super.setPreservePaths( true );
+	}
+}
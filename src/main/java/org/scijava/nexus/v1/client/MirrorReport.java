@@ -0,0 +1,51 @@
+package org.scijava.nexus.v1.client;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a repository mirror: the downloads of new and changed assets,
+ * how many were already up to date, and what was pruned.
+ *
+ * @author agent
+ *
+ */
+
+public class MirrorReport {
+
+	private final BulkDownloadReport downloads;
+	private final int unchanged;
+	private final List< String > pruned;
+
+	MirrorReport( BulkDownloadReport downloads, int unchanged, List< String > pruned ) {
+		this.downloads = downloads;
+		this.unchanged = unchanged;
+		this.pruned = Collections.unmodifiableList( pruned );
+	}
+
+	/**
+	 * @return the outcome of every new or changed asset
+	 */
+	public BulkDownloadReport getDownloads() {
+		return downloads;
+	}
+
+	/**
+	 * @return the number of assets whose local copy was up to date
+	 */
+	public int getUnchanged() {
+		return unchanged;
+	}
+
+	/**
+	 * @return the paths of the local files deleted because their asset is no
+	 *         longer in the repository
+	 */
+	public List< String > getPruned() {
+		return pruned;
+	}
+
+	public boolean isSuccessful() {
+		return downloads.isSuccessful();
+	}
+}
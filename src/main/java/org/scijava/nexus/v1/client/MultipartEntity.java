@@ -0,0 +1,184 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * A multipart/form-data request body written straight to the connection.
+ *
+ * RESTEasy's client engine writes every request body to memory, or to a
+ * temporary file once it grows large, before sending it. Uploads are instead
+ * sent through the session's pooled HTTP client with this entity, which
+ * reads each file only as it is written out. It can therefore be sent only
+ * once.
+ *
+ * When every file is on disk, the exact length of the body is known up front
+ * and declared, so the server can refuse an upload before receiving it;
+ * otherwise the body is sent with chunked transfer encoding. All files go
+ * through a single buffer per request.
+ *
+ * @author agent
+ */
+class MultipartEntity extends AbstractHttpEntity {
+
+	private static final byte[] CRLF = { '\r', '\n' };
+	private static final byte[] DASHES = { '-', '-' };
+
+	private final String boundary = "nexus-" + UUID.randomUUID();
+	private final List< Part > parts = new ArrayList<>();
+	private final byte[] separator = ascii( "--" + boundary );
+	private long length;
+
+	MultipartEntity() {
+		setContentType( "multipart/form-data; boundary=" + boundary );
+		// the closing boundary
+		length = separator.length + DASHES.length + CRLF.length;
+	}
+
+	/**
+	 * Add a text field, such as a directory or file name.
+	 */
+	void addText( String name, String value ) {
+		add( new Part( name, null, "text/plain; charset=UTF-8", value, null, -1 ) );
+	}
+
+	/**
+	 * Add the contents of a file.
+	 *
+	 * @throws IOException
+	 *             if the size of a file on disk cannot be read
+	 */
+	void addFile( String name, UploadEntry entry ) throws IOException {
+		String fileName = entry.getPath().substring( entry.getPath().lastIndexOf( '/' ) + 1 );
+		long size = ( entry.getFile() != null ) ? Files.size( entry.getFile() ) : -1;
+		add( new Part( name, fileName, "application/octet-stream", null, entry, size ) );
+	}
+
+	private void add( Part part ) {
+		parts.add( part );
+		long content = ( part.entry == null ) ? part.text.length : part.size;
+		if ( length >= 0 )
+			length = ( content < 0 ) ? -1 : length + separator.length + CRLF.length + part.header.length + content + CRLF.length;
+		setChunked( length < 0 );
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return false;
+	}
+
+	@Override
+	public long getContentLength() {
+		return length;
+	}
+
+	@Override
+	public InputStream getContent() {
+		throw new UnsupportedOperationException( "Multipart uploads can only be written" );
+	}
+
+	@Override
+	public void writeTo( OutputStream out ) throws IOException {
+		byte[] buffer = null;
+		for ( Part part : parts ) {
+			out.write( separator );
+			out.write( CRLF );
+			out.write( part.header );
+			if ( part.entry != null ) {
+				if ( buffer == null ) buffer = new byte[ 64 << 10 ];
+				if ( part.entry.getFile() != null ) {
+					transfer( part, buffer, out );
+				} else {
+					try (InputStream in = part.entry.open()) {
+						copy( in, buffer, out );
+					}
+				}
+			} else {
+				out.write( part.text );
+			}
+			out.write( CRLF );
+		}
+		out.write( separator );
+		out.write( DASHES );
+		out.write( CRLF );
+		out.flush();
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return true;
+	}
+
+	/**
+	 * Close the streams of the files, including those not sent because the
+	 * request failed: the entity owns them.
+	 */
+	void discard() {
+		for ( Part part : parts ) {
+			if ( part.entry == null || part.entry.getFile() != null ) continue;
+			try {
+				part.entry.open().close();
+			} catch ( IOException e ) {
+				// nothing more to release
+			}
+		}
+	}
+
+	/**
+	 * Send exactly the size the file had when it was added, since it may have
+	 * been declared as part of the content length.
+	 */
+	private static void transfer( Part part, byte[] buffer, OutputStream out ) throws IOException {
+		try (FileChannel file = FileChannel.open( part.entry.getFile() )) {
+			long remaining = part.size;
+			while ( remaining > 0 ) {
+				ByteBuffer chunk = ByteBuffer.wrap( buffer, 0, ( int ) Math.min( buffer.length, remaining ) );
+				if ( file.read( chunk ) < 0 )
+					throw new IOException( part.entry.getFile() + " was truncated while being uploaded" );
+				out.write( buffer, 0, chunk.position() );
+				remaining -= chunk.position();
+			}
+		}
+	}
+
+	private static void copy( InputStream in, byte[] buffer, OutputStream out ) throws IOException {
+		int n;
+		while ( ( n = in.read( buffer ) ) >= 0 )
+			out.write( buffer, 0, n );
+	}
+
+	private static byte[] ascii( String s ) {
+		return s.getBytes( StandardCharsets.US_ASCII );
+	}
+
+	private static String quote( String s ) {
+		return '"' + s.replace( "\\", "\\\\" ).replace( "\"", "\\\"" ).replace( "\r", "" ).replace( "\n", "" ) + '"';
+	}
+
+	private static class Part {
+
+		final byte[] header;
+		final byte[] text;
+		final UploadEntry entry;
+		final long size;
+
+		Part( String name, String fileName, String contentType, String text, UploadEntry entry, long size ) {
+			String disposition = "Content-Disposition: form-data; name=" + quote( name );
+			if ( fileName != null ) disposition += "; filename=" + quote( fileName );
+			this.header = ( disposition + "\r\nContent-Type: " + contentType + "\r\n\r\n" ).getBytes( StandardCharsets.UTF_8 );
+			this.text = ( text == null ) ? null : text.getBytes( StandardCharsets.UTF_8 );
+			this.entry = entry;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.scijava.nexus.v1.client.domain.Asset;
+import org.scijava.nexus.v1.client.domain.Component;
+import org.scijava.nexus.v1.client.domain.ComponentUploadForm;
+import org.scijava.nexus.v1.client.domain.Query;
+import org.scijava.nexus.v1.client.domain.Repository;
+
+/**
+ * Asynchronous facade of a {@link NexusClient}, obtained through
+ * {@link NexusClient#async()}.
+ *
+ * This is a thread-pool facade, not non-blocking I/O: every call runs the
+ * corresponding blocking {@link NexusClient} method on a thread owned by the
+ * session, so it shares the session's connection pool, metadata cache, local
+ * index, retry policy and metrics listener, and holds that thread until the
+ * call returns. With {@link NexusClientConfig#setVirtualThreads(boolean)
+ * virtual threads} the thread is a virtual one. These threads are kept apart
+ * from the session's executor, on which the bulk work of a call runs.
+ *
+ * Cancelling a returned future interrupts its thread, which stops the call at
+ * its next wait: between retries, pages, segments or the items of a bulk
+ * operation. A request already sent to the server is not aborted; the call
+ * stops once it has been answered. Failures, including a session that has
+ * been closed, complete the future exceptionally with a
+ * {@link NexusReSTClientException}.
+ *
+ * @author agent
+ */
+public class NexusAsyncClient {
+
+	private final NexusClient session;
+
+	NexusAsyncClient( NexusClient session ) {
+		this.session = session;
+	}
+
+	/**
+	 * @see NexusClient#listRepositories()
+	 */
+	public CompletableFuture< List< Repository > > listRepositories() {
+		return submit( session::listRepositories );
+	}
+
+	/**
+	 * @see NexusClient#searchAssets(Query)
+	 */
+	public CompletableFuture< List< Asset > > searchAssets( Query q ) {
+		return submit( () -> session.searchAssets( q ) );
+	}
+
+	/**
+	 * @see NexusClient#searchComponents(Query)
+	 */
+	public CompletableFuture< List< Component > > searchComponents( Query q ) {
+		return submit( () -> session.searchComponents( q ) );
+	}
+
+	/**
+	 * @see NexusClient#listAssets(String)
+	 */
+	public CompletableFuture< List< Asset > > listAssets( String repository ) {
+		return submit( () -> session.listAssets( repository ) );
+	}
+
+	/**
+	 * @see NexusClient#listComponents(String)
+	 */
+	public CompletableFuture< List< Component > > listComponents( String repository ) {
+		return submit( () -> session.listComponents( repository ) );
+	}
+
+	/**
+	 * @see NexusClient#getAsset(String, String)
+	 */
+	public CompletableFuture< File > getAsset( String assetId, String downloadDir ) {
+		return submit( () -> session.getAsset( assetId, downloadDir ) );
+	}
+
+	/**
+	 * @see NexusClient#getComponent(String, String)
+	 */
+	public CompletableFuture< List< File > > getComponent( String componentId, String downloadDir ) {
+		return submit( () -> session.getComponent( componentId, downloadDir ) );
+	}
+
+	/**
+	 * @see NexusClient#searchAssetsAndDownload(Query, String, String)
+	 */
+	public CompletableFuture< File > searchAssetsAndDownload( Query q, String fileName, String downloadDir ) {
+		return submit( () -> session.searchAssetsAndDownload( q, fileName, downloadDir ) );
+	}
+
+	/**
+	 * @see NexusClient#deleteAsset(String)
+	 */
+	public CompletableFuture< Void > deleteAsset( String assetId ) {
+		return submit( () -> {
+			session.deleteAsset( assetId );
+			return null;
+		} );
+	}
+
+	/**
+	 * @see NexusClient#deleteComponent(String)
+	 */
+	public CompletableFuture< Void > deleteComponent( String componentId ) {
+		return submit( () -> {
+			session.deleteComponent( componentId );
+			return null;
+		} );
+	}
+
+	/**
+	 * @see NexusClient#uploadComponent(String, ComponentUploadForm)
+	 */
+	public CompletableFuture< Void > uploadComponent( String repository, ComponentUploadForm uploadForm ) {
+		return submit( () -> {
+			session.uploadComponent( repository, uploadForm );
+			return null;
+		} );
+	}
+
+	/**
+	 * Run a blocking session call on a thread of its own.
+	 */
+	private < T > Call< T > submit( Callable< T > task ) {
+		Call< T > call = new Call<>();
+		try {
+			call.track( session.asyncExecutor().submit( () -> {
+				try {
+					call.complete( task.call() );
+				} catch ( Exception e ) {
+					call.completeExceptionally( Bulk.failure( e ) );
+				}
+			} ) );
+		} catch ( RejectedExecutionException e ) {
+			call.completeExceptionally( new NexusReSTClientException( e ) );
+		}
+		return call;
+	}
+
+	/**
+	 * The future handed to the caller. Cancelling it also cancels, and so
+	 * interrupts, the task running on its behalf.
+	 */
+	private static class Call< T > extends CompletableFuture< T > {
+
+		private volatile Future< ? > inFlight;
+
+		void track( Future< ? > future ) {
+			inFlight = future;
+			if ( isCancelled() ) future.cancel( true );
+		}
+
+		@Override
+		public boolean cancel( boolean mayInterruptIfRunning ) {
+			boolean cancelled = super.cancel( mayInterruptIfRunning );
+			Future< ? > future = inFlight;
+			if ( future != null ) future.cancel( true );
+			return cancelled;
+		}
+	}
+}
@@ -0,0 +1,1332 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.ws.rs.RedirectionException;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.util.EntityUtils;
+
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ManualClosingApacheHttpClient43Engine;
+import org.jboss.resteasy.client.jaxrs.internal.BasicAuthentication;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.scijava.nexus.v1.client.MetadataCache.Type;
+import org.scijava.nexus.v1.client.MetricsListener.Endpoint;
+import org.scijava.nexus.v1.client.domain.Asset;
+import org.scijava.nexus.v1.client.domain.CompactAsset;
+import org.scijava.nexus.v1.client.domain.Component;
+import org.scijava.nexus.v1.client.domain.ComponentUploadForm;
+import org.scijava.nexus.v1.client.domain.Maven2UploadForm;
+import org.scijava.nexus.v1.client.domain.Query;
+import org.scijava.nexus.v1.client.domain.Repository;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * A client session bound to a single Nexus server.
+ *
+ * Unlike the static {@link NexusReSTClient} methods, a NexusClient keeps a
+ * pool of keep-alive connections and a single {@link NexusReSTClientProxy}
+ * for its whole lifetime, so consecutive calls do not pay for a new TCP/TLS
+ * handshake and proxy generation. Instances are thread-safe and meant to be
+ * shared; {@link #close()} releases the pooled connections.
+ *
+ * @author agent
+ */
+public class NexusClient implements AutoCloseable {
+
+	private static final AtomicInteger THREADS = new AtomicInteger();
+	/** Items fetched ahead of the consumer, per repository of a fan-out search */
+	private static final int FAN_OUT_BUFFER = 256;
+
+	private final String baseURL;
+	private final NexusClientConfig config;
+	private final ResteasyClient client;
+	private final NexusReSTClientProxy restClient;
+	private final BasicAuthentication authentication;
+	private final String authorization;
+	private final HttpClient httpClient;
+	private final Downloader downloader;
+	private final ArtifactCache cache;
+	private final LocalIndex index;
+	private final Retry retry;
+	/** Null unless a listener is configured */
+	private final MetricsListener metrics;
+	private final ConnPoolControl< ? > pool;
+	private ExecutorService executor;
+	private ExecutorService asyncExecutor;
+	private Bulk bulk;
+	private NexusAsyncClient async;
+
+	/**
+	 * Anonymous session with the default {@link NexusClientConfig}
+	 *
+	 * @param baseURL
+	 *            - the base URL of the Nexus server
+	 */
+	public NexusClient( String baseURL ) {
+		this( baseURL, null, null );
+	}
+
+	/**
+	 * Authenticated session with the default {@link NexusClientConfig}
+	 *
+	 * @param baseURL
+	 *            - the base URL of the Nexus server
+	 * @param username
+	 *            - login of the user, or null for anonymous access
+	 * @param password
+	 *            - password of the user
+	 */
+	public NexusClient( String baseURL, String username, String password ) {
+		this( baseURL, username, password, new NexusClientConfig() );
+	}
+
+	/**
+	 *
+	 * @param baseURL
+	 *            - the base URL of the Nexus server
+	 * @param username
+	 *            - login of the user, or null for anonymous access
+	 * @param password
+	 *            - password of the user
+	 * @param config
+	 *            - connection pool and timeout settings
+	 */
+	public NexusClient( String baseURL, String username, String password, NexusClientConfig config ) {
+		this.baseURL = baseURL;
+		this.config = config;
+		ResteasyClientBuilder builder = ( ResteasyClientBuilder ) ClientBuilder.newBuilder();
+		builder.connectionPoolSize( config.getConnectionPoolSize() );
+		builder.maxPooledPerRoute( config.getMaxPooledPerRoute() );
+		if ( config.getConnectionTTL() >= 0 )
+			builder.connectionTTL( config.getConnectionTTL(), TimeUnit.MILLISECONDS );
+		if ( config.getConnectTimeout() >= 0 )
+			builder.connectTimeout( config.getConnectTimeout(), TimeUnit.MILLISECONDS );
+		if ( config.getReadTimeout() >= 0 )
+			builder.readTimeout( config.getReadTimeout(), TimeUnit.MILLISECONDS );
+		if ( config.getConnectionCheckoutTimeout() >= 0 )
+			builder.connectionCheckoutTimeout( config.getConnectionCheckoutTimeout(), TimeUnit.MILLISECONDS );
+		MetricsListener listener = config.getMetricsListener();
+		metrics = ( listener == MetricsListener.NONE ) ? null : listener;
+		MeteredEngine engine = ( metrics == null ) ? null : MeteredEngine.build( builder, metrics );
+		if ( engine != null ) builder.httpEngine( engine );
+		pool = ( engine == null ) ? null : engine.getPool();
+		client = builder.build();
+		authentication = ( username != null || password != null ) ? new BasicAuthentication( username, password ) : null;
+		if ( authentication != null ) client.register( authentication );
+		authorization = ( authentication == null ) ? null
+				: "Basic " + Base64.getEncoder().encodeToString( ( username + ":" + password ).getBytes( StandardCharsets.UTF_8 ) );
+		// uploads bypass the engine, which buffers request bodies, but share its pool
+		httpClient = ( ( ManualClosingApacheHttpClient43Engine ) client.httpEngine() ).getHttpClient();
+		restClient = client.target( baseURL ).proxy( NexusReSTClientProxy.class );
+		downloader = new Downloader( client, config, this::executor );
+		cache = ( config.getCacheDirectory() == null ) ? null : new ArtifactCache( config.getCacheDirectory(), config.getCacheMaxSize() );
+		index = ( config.getIndexDirectory() == null ) ? null : new LocalIndex( config.getIndexDirectory() );
+		retry = ( config.getRetryPolicy() == null ) ? null : new Retry( config.getRetryPolicy(), metrics );
+	}
+
+	public String getBaseURL() {
+		return baseURL;
+	}
+
+	public NexusClientConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * List all the repositories (local and mirrored) hosted on server
+	 *
+	 * @return list of {@link Repository} managed by the server
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a Runtime or IOException is encountered.
+	 * @see NexusReSTClient#listRepositories(String)
+	 */
+	public List< Repository > listRepositories() throws NexusReSTClientException {
+		try {
+			Repository[] repositories = document( Type.REPOSITORIES, "", restClient::listRepositories, NexusJson.REPOSITORIES );
+			// a copy, as the array may be cached
+			return Arrays.asList( repositories.clone() );
+		} catch ( RuntimeException | IOException e ) {
+			throw new NexusReSTClientException( e );
+		}
+	}
+
+	/**
+	 * The names of the repositories of a format and type, e.g. to search them
+	 * all with {@link #searchAssetsStream(Query, Collection, boolean)}
+	 *
+	 * @param format
+	 *            - e.g. "maven2" or "raw", or null for any
+	 * @param type
+	 *            - "hosted", "proxy" or "group", or null for any
+	 * @return the names of the matching repositories
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a Runtime or IOException is encountered.
+	 */
+	public List< String > listRepositoryNames( String format, String type ) throws NexusReSTClientException {
+		return listRepositories().stream()
+				.filter( repository -> format == null || format.equalsIgnoreCase( repository.getFormat() ) )
+				.filter( repository -> type == null || type.equalsIgnoreCase( repository.getType() ) )
+				.map( Repository::getName )
+				.collect( Collectors.toList() );
+	}
+
+	/**
+	 * Search for one or more assets using one or more search parameters
+	 *
+	 * @param q
+	 *            - {@link Query} object in which a number of supported search
+	 *            parameters can be set
+	 * @return a list of {@link Asset} or an empty list if none were found.
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException or IOException is encountered.
+	 */
+	public List< Asset > searchAssets( Query q ) throws NexusReSTClientException {
+		RepositoryIndex local = index( q, q.getRepository() );
+		if ( local != null ) return local.searchAssets( q );
+		return cachedLister( key( "search/assets", q ), Endpoint.SEARCH_ASSETS, searchAssetsPages( q, q.getRepository() ), NexusJson.ASSET );
+	}
+
+	/**
+	 * Search for an assets and download it using one or more search parameters.
+	 *
+	 * Check for the following error code returns:
+	 * 400 : Search returned multiple assets. Refine search criteria
+	 * to find a single asset or use the sort query parameter to
+	 * retrieve the first result.
+	 * 404 : Asset search returned no results
+	 *
+	 * @param q
+	 *            - {@link Query} object in which a number of supported search
+	 *            parameters can be set
+	 * @param fileName
+	 *            - what to name the download
+	 * @param downloadDir
+	 *            - where to download the asset to
+	 * @return File handle to down loaded asset
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException or IOException is encountered.
+	 */
+	public File searchAssetsAndDownload( Query q, String fileName, String downloadDir ) throws NexusReSTClientException {
+		try {
+			restClient.searchAssetsAndDownload(
+					q.getSortBy(),
+					q.getOrderBy(),
+					q.getKeyword(),
+					q.getRepository(),
+					q.getFormat(),
+					q.getComponentGroup(),
+					q.getComponentName(),
+					q.getComponentVersion(),
+					q.getMavenGroupId(),
+					q.getMavenArtifactId(),
+					q.getMavenBaseVersion(),
+					q.getMavenExtension() );
+
+		} catch ( RedirectionException e ) {
+			try {
+				return downloader.download( e.getLocation().toString(), Paths.get( downloadDir, fileName ), null );
+			} catch ( RuntimeException | IOException e1 ) {
+				throw new NexusReSTClientException( e1 );
+			}
+		} catch ( RuntimeException e ) {
+			throw new NexusReSTClientException( e );
+		}
+		return null;
+	}
+
+	/**
+	 * Lists all the assets stored in the given repository
+	 *
+	 * @param repository
+	 *            - the repository of interest
+	 *
+	 * @return list of assets stored in the given repository
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException is encountered.
+	 */
+	public List< Asset > listAssets( String repository ) throws NexusReSTClientException {
+		return cachedLister( "assets\n" + repository, Endpoint.LIST_ASSETS, listAssetsPages( repository ), NexusJson.ASSET );
+	}
+
+	/**
+	 * Lists all the assets stored in the given repository, in the
+	 * {@link CompactAsset compact representation} suited to repositories of
+	 * millions of assets. Each page is compacted as soon as it is decoded, and
+	 * the listing bypasses the query cache.
+	 *
+	 * @param repository
+	 *            - the repository of interest
+	 *
+	 * @return unmodifiable list of the assets stored in the given repository
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException or IOException is encountered.
+	 */
+	public List< CompactAsset > listCompactAssets( String repository ) throws NexusReSTClientException {
+		CompactAsset.Pool pool = new CompactAsset.Pool();
+		ArrayList< CompactAsset > result = new ArrayList<>();
+		try (PageIterator< Asset > pages = pages( Endpoint.LIST_ASSETS, listAssetsPages( repository ), NexusJson.ASSET )) {
+			pages.forEachRemaining( asset -> result.add( pool.compact( asset ) ) );
+		} catch ( UncheckedNexusReSTClientException e ) {
+			throw e.getCause();
+		}
+		result.trimToSize();
+		return Collections.unmodifiableList( result );
+	}
+
+	/**
+	 * Download the asset with the given ID
+	 *
+	 * @param assetId
+	 *            - the asset's ID
+	 * @param downloadDir
+	 *            - target download directory
+	 *
+	 * @return a handle to the down loaded asset
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException or IOException is encountered.
+	 */
+	public File getAsset( String assetId, String downloadDir ) throws NexusReSTClientException {
+		try {
+			return saveAsset( fetchAsset( assetId ), downloadDir );
+		} catch ( RuntimeException | IOException e ) {
+			throw new NexusReSTClientException( e );
+		}
+	}
+
+	/**
+	 * Download several assets at once. At most
+	 * {@link NexusClientConfig#setMaxConcurrency(int)} downloads run at the
+	 * same time, on the session's executor.
+	 *
+	 * @param assetIds
+	 *            - the assets' IDs
+	 * @param downloadDir
+	 *            - target download directory
+	 *
+	 * @return handles to the down loaded assets, in the order of the IDs
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException for the first asset that could not be downloaded
+	 */
+	public List< File > getAssets( Collection< String > assetIds, String downloadDir ) throws NexusReSTClientException {
+		return bulk().invokeAll( assetIds, assetId -> getAsset( assetId, downloadDir ) );
+	}
+
+	/**
+	 * Delete the given asset. Only sessions opened by a user with delete
+	 * privilege can use this command.
+	 * If an exception occurs check return code.
+	 *
+	 * @param assetId
+	 *            - ID of asset to be deleted
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException is encountered.
+	 */
+	public void deleteAsset( String assetId ) throws NexusReSTClientException {
+		try {
+			restClient.deleteAsset( assetId );
+		} catch ( RuntimeException e ) {
+			throw new NexusReSTClientException( e );
+		} finally {
+			invalidateAsset( assetId );
+		}
+	}
+
+	/**
+	 * Delete several assets at once, at most
+	 * {@link NexusClientConfig#setMaxConcurrency(int)} at a time over the
+	 * session's connections. Every ID is attempted: failures are reported,
+	 * not thrown.
+	 *
+	 * @param assetIds
+	 *            - IDs of the assets to be deleted
+	 * @return the outcome for each ID; an asset that was not found counts as
+	 *         already deleted
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if interrupted
+	 */
+	public BulkDeleteReport deleteAssets( Collection< String > assetIds ) throws NexusReSTClientException {
+		return deleteAll( assetIds, this::deleteAsset );
+	}
+
+	/**
+	 * Search for one or more components using one or more search parameters
+	 *
+	 * @param q
+	 *            - {@link Query} object in which a number of supported search
+	 *            parameters can be set
+	 *
+	 * @return a list of {@link Component} or an empty list if none were found.
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException or IOException is encountered.
+	 */
+	public List< Component > searchComponents( Query q ) throws NexusReSTClientException {
+		RepositoryIndex local = index( q, q.getRepository() );
+		if ( local != null ) return local.searchComponents( q );
+		return cachedLister( key( "search", q ), Endpoint.SEARCH_COMPONENTS, searchComponentsPages( q, q.getRepository() ), NexusJson.COMPONENT );
+	}
+
+	/**
+	 * Lists all the components stored in the listed repository
+	 *
+	 * @param repository
+	 *            - the repository of interest
+	 *
+	 * @return list of components stored in the given repository
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException is encountered.
+	 */
+	public List< Component > listComponents( String repository ) throws NexusReSTClientException {
+		return cachedLister( "components\n" + repository, Endpoint.LIST_COMPONENTS, listComponentsPages( repository ), NexusJson.COMPONENT );
+	}
+
+	/**
+	 * Delete the given component. Only sessions opened by a user with delete
+	 * privilege can use this command.
+	 * If an exception occurs check return code.
+	 *
+	 * @param componentId
+	 *            - ID of component to be deleted
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException is encountered.
+	 */
+	public void deleteComponent( String componentId ) throws NexusReSTClientException {
+		try {
+			restClient.deleteComponent( componentId );
+		} catch ( RuntimeException e ) {
+			throw new NexusReSTClientException( e );
+		} finally {
+			invalidateComponent( componentId );
+		}
+	}
+
+	/**
+	 * Delete several components at once, at most
+	 * {@link NexusClientConfig#setMaxConcurrency(int)} at a time over the
+	 * session's connections. Every ID is attempted: failures are reported,
+	 * not thrown.
+	 *
+	 * @param componentIds
+	 *            - IDs of the components to be deleted
+	 * @return the outcome for each ID; a component that was not found counts
+	 *         as already deleted
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if interrupted
+	 */
+	public BulkDeleteReport deleteComponents( Collection< String > componentIds ) throws NexusReSTClientException {
+		return deleteAll( componentIds, this::deleteComponent );
+	}
+
+	/**
+	 * Download the component with the given ID. This will download all the
+	 * assets that are contained within this component, several at a time (see
+	 * {@link NexusClientConfig#setComponentParallelism(int)}). If one of them
+	 * fails, none of the files this call created is left behind; files that
+	 * were already there are kept. Assets that would be saved under the same
+	 * file name fail the call before anything is downloaded.
+	 *
+	 * @param componentId
+	 *            - ID of component to be downloaded
+	 * @param downloadDir
+	 *            - target download directory
+	 *
+	 * @return a list of handles to all the component's down loaded assets
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException or IOException is encountered.
+	 */
+	public List< File > getComponent( String componentId, String downloadDir ) throws NexusReSTClientException {
+		return saveComponent( fetchComponent( componentId ), downloadDir );
+	}
+
+	/**
+	 * Upload a component: up to 3 files that belong to the same name space. For
+	 * more, see {@link #uploadRaw(String, String, Collection)}. Requires a session opened by a user with upload
+	 * permission to the given repository.
+	 *
+	 * @param repository
+	 *            - name of repository to which component is to be uploaded
+	 * @param uploadForm
+	 *            - {@link ComponentUploadForm}
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException is encountered.
+	 */
+	public void uploadComponent( String repository, ComponentUploadForm uploadForm ) throws NexusReSTClientException {
+		try {
+			restClient.uploadComponent( repository, uploadForm );
+		} catch ( RuntimeException e ) {
+			throw new NexusReSTClientException( e );
+		} finally {
+			invalidateQueries();
+		}
+	}
+
+	/**
+	 * Upload any number of files to the same directory of a raw repository.
+	 * The files are split into requests of
+	 * {@link NexusClientConfig#setAssetsPerUpload(int)} files, sent at most
+	 * {@link NexusClientConfig#setMaxConcurrency(int)} at a time over the
+	 * session's connections. Their contents are streamed: a file is only read
+	 * while its request is being sent. Requests made only of files given as a
+	 * {@link Path} declare their exact length, the others are chunked. A
+	 * failed request does not throw; the files it carried are reported as
+	 * failed.
+	 *
+	 * @param repository
+	 *            - name of the raw repository to upload to
+	 * @param directory
+	 *            - the upload root directory
+	 * @param entries
+	 *            - the files, each with its path relative to the directory
+	 * @return the outcome for each file, in the given order
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if interrupted
+	 */
+	public BulkUploadReport uploadRaw( String repository, String directory, Collection< UploadEntry > entries ) throws NexusReSTClientException {
+		List< List< UploadEntry > > requests = new ArrayList<>();
+		int size = Math.max( 1, config.getAssetsPerUpload() );
+		for ( UploadEntry entry : entries ) {
+			if ( requests.isEmpty() || requests.get( requests.size() - 1 ).size() == size )
+				requests.add( new ArrayList<>( size ) );
+			requests.get( requests.size() - 1 ).add( entry );
+		}
+		return uploadAll( repository, requests, request -> {
+			MultipartEntity body = new MultipartEntity();
+			body.addText( "raw.directory", directory );
+			int n = 1;
+			for ( UploadEntry entry : request ) {
+				body.addFile( "raw.asset" + n, entry );
+				body.addText( "raw.asset" + n + ".filename", entry.getPath() );
+				n++;
+			}
+			return body;
+		}, request -> request.stream().map( UploadEntry::getPath ).collect( Collectors.toList() ) );
+	}
+
+	/**
+	 * Upload a maven2 component, i.e. all the files of one
+	 * groupId:artifactId:version, in a single streamed request. Requires a
+	 * session opened by a user with upload permission to the given
+	 * repository.
+	 *
+	 * @param repository
+	 *            - name of the maven2 repository to upload to
+	 * @param uploadForm
+	 *            - {@link Maven2UploadForm}
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException or IOException is encountered.
+	 */
+	public void uploadMaven2( String repository, Maven2UploadForm uploadForm ) throws NexusReSTClientException {
+		try {
+			upload( repository, maven2Form( uploadForm ) );
+		} catch ( IOException e ) {
+			throw new NexusReSTClientException( e );
+		} finally {
+			invalidateQueries();
+		}
+	}
+
+	/**
+	 * Publish many maven2 components at once, one request each, at most
+	 * {@link NexusClientConfig#setMaxConcurrency(int)} at a time over the
+	 * session's connections. A failed upload does not throw; it is recorded in
+	 * the report.
+	 *
+	 * @param repository
+	 *            - name of the maven2 repository to upload to
+	 * @param uploadForms
+	 *            - one {@link Maven2UploadForm} per component
+	 * @return the outcome for each component, in the given order, named by
+	 *         its groupId:artifactId:version
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if interrupted
+	 */
+	public BulkUploadReport publishMaven2( String repository, Collection< Maven2UploadForm > uploadForms ) throws NexusReSTClientException {
+		return uploadAll( repository, new ArrayList<>( uploadForms ), this::maven2Form,
+				form -> Collections.singletonList( form.getGroupId() + ":" + form.getArtifactId() + ":" + form.getVersion() ) );
+	}
+
+	/**
+	 * Download assets whose metadata is already known, such as the result of
+	 * {@link #listAssets(String)}, straight from their download URLs. The
+	 * number of concurrent transfers, overall and per host, and their combined
+	 * throughput are bounded as set in the options. A failed download does
+	 * not throw: it is recorded in the report, and with
+	 * {@link BulkDownloadOptions.FailurePolicy#FAIL_FAST} stops further
+	 * downloads from starting.
+	 *
+	 * @param assets
+	 *            - the assets to download
+	 * @param downloadDir
+	 *            - target download directory
+	 * @param options
+	 *            - limits and failure policy
+	 * @return the outcome of each asset, in the given order
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if interrupted
+	 */
+	public BulkDownloadReport downloadAssets( Collection< Asset > assets, String downloadDir, BulkDownloadOptions options ) throws NexusReSTClientException {
+		return new BulkDownloader( this, downloader, downloadDir, options ).run( assets );
+	}
+
+	/**
+	 * Variant of {@link #downloadAssets(Collection, String, BulkDownloadOptions)}
+	 * that pulls the assets from the stream only as transfers can start, so
+	 * that downloads begin before a lazy listing such as
+	 * {@link #listAssetsStream(String)} has been fetched in full. The report
+	 * still keeps the outcome, and so the asset, of every one. The stream is
+	 * closed when done.
+	 */
+	public BulkDownloadReport downloadAssets( Stream< Asset > assets, String downloadDir, BulkDownloadOptions options ) throws NexusReSTClientException {
+		try (Stream< Asset > stream = assets) {
+			return new BulkDownloader( this, downloader, downloadDir, options ).run( stream::iterator );
+		} catch ( UncheckedNexusReSTClientException e ) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Bring a local copy of a repository up to date. The repository is listed
+	 * and only the assets whose local file is missing or differs from the
+	 * asset's checksum are downloaded, within the limits set in the options,
+	 * each to its repository path under the directory. A manifest kept in the
+	 * directory spares the next run from hashing files that have not changed
+	 * locally. A failed download does not throw: it is recorded in the
+	 * report.
+	 *
+	 * @param repository
+	 *            - the repository to mirror
+	 * @param directory
+	 *            - the local copy of the repository
+	 * @param options
+	 *            - download limits, pruning and manifest
+	 * @return what was downloaded, left as is and pruned
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if the listing fails, the manifest cannot be written, or interrupted
+	 */
+	public MirrorReport mirror( String repository, String directory, MirrorOptions options ) throws NexusReSTClientException {
+		return new Mirror( this, downloader, directory, options ).run( repository );
+	}
+
+	/**
+	 * Lazy variant of {@link #searchAssets(Query)}: the next page is only
+	 * requested once the consumer has reached the end of the current one, so
+	 * short-circuiting operations such as {@code findFirst} or {@code limit}
+	 * never fetch the remaining pages. With a
+	 * {@link NexusClientConfig#setPrefetchDepth(int) prefetch depth} set, up
+	 * to that many pages are fetched ahead in the background instead. Use
+	 * {@link Stream#iterator()} for iterator-style access.
+	 *
+	 * The stream should be closed, e.g. with try-with-resources, once it is no
+	 * longer needed. Errors raised while fetching a page are thrown as
+	 * {@link UncheckedNexusReSTClientException}.
+	 *
+	 * @param q
+	 *            - {@link Query} object in which a number of supported search
+	 *            parameters can be set
+	 * @return a lazily populated stream of {@link Asset}
+	 */
+	public Stream< Asset > searchAssetsStream( Query q ) {
+		RepositoryIndex local = index( q, q.getRepository() );
+		if ( local != null ) return local.searchAssets( q ).stream();
+		return this.< Asset >pages( Endpoint.SEARCH_ASSETS, searchAssetsPages( q, q.getRepository() ), NexusJson.ASSET ).stream();
+	}
+
+	/**
+	 * Lazy variant of {@link #searchComponents(Query)}, see
+	 * {@link #searchAssetsStream(Query)}
+	 *
+	 * @param q
+	 *            - {@link Query} object in which a number of supported search
+	 *            parameters can be set
+	 * @return a lazily populated stream of {@link Component}
+	 */
+	public Stream< Component > searchComponentsStream( Query q ) {
+		RepositoryIndex local = index( q, q.getRepository() );
+		if ( local != null ) return local.searchComponents( q ).stream();
+		return this.< Component >pages( Endpoint.SEARCH_COMPONENTS, searchComponentsPages( q, q.getRepository() ), NexusJson.COMPONENT ).stream();
+	}
+
+	/**
+	 * Run the same asset search against several repositories at once, see
+	 * {@link #searchComponentsStream(Query, Collection)}.
+	 *
+	 * Assets do not carry the attributes they are sorted by, so a sorted
+	 * search merges the matching components instead and hands out their
+	 * assets in turn, narrowed to the maven extension of the query.
+	 *
+	 * @param q
+	 *            - {@link Query} object in which a number of supported search
+	 *            parameters can be set; its repository is ignored
+	 * @param repositories
+	 *            - the repositories to search
+	 * @param distinct
+	 *            - hand out only the first of the assets with the same
+	 *            checksum, e.g. of an artifact found both in a hosted
+	 *            repository and in a proxy of it
+	 * @return a lazily populated stream of {@link Asset}
+	 */
+	public Stream< Asset > searchAssetsStream( Query q, Collection< String > repositories, boolean distinct ) {
+		Stream< Asset > assets;
+		if ( q.getSortBy() == null ) {
+			assets = fanOut( q, repositories, Endpoint.SEARCH_ASSETS, this::searchAssetsPages, NexusJson.ASSET, RepositoryIndex::searchAssets, null ).stream();
+		} else {
+			String extension = q.getMavenExtension();
+			boolean exact = extension != null && extension.indexOf( '*' ) < 0;
+			assets = searchComponentsStream( q, repositories ).flatMap( component -> component.getAssets().stream()
+					.filter( asset -> !exact || extension.equals( RepositoryIndex.extension( component, asset ) ) ) );
+		}
+		if ( !distinct ) return assets;
+		Set< String > checksums = new HashSet<>();
+		return assets.filter( asset -> {
+			ArtifactCache.Key key = ArtifactCache.key( asset.getChecksum() );
+			return key == null || checksums.add( key.algorithm + ":" + key.digest.toLowerCase() );
+		} );
+	}
+
+	/**
+	 * Run the same component search against several repositories at once.
+	 *
+	 * The pages of every repository are requested concurrently, each
+	 * repository by its own task, and the results merged into one stream: in
+	 * the order they arrive, or, if the query is sorted, in that order across
+	 * all repositories. Repositories with a {@link #refreshIndex(String) local
+	 * index} are searched locally. If any repository cannot be searched, the
+	 * stream throws an {@link UncheckedNexusReSTClientException}. Close the
+	 * stream to stop the searches early.
+	 *
+	 * @param q
+	 *            - {@link Query} object in which a number of supported search
+	 *            parameters can be set; its repository is ignored
+	 * @param repositories
+	 *            - the repositories to search, see
+	 *            {@link #listRepositoryNames(String, String)}
+	 * @return a lazily populated stream of {@link Component}
+	 */
+	public Stream< Component > searchComponentsStream( Query q, Collection< String > repositories ) {
+		return fanOut( q, repositories, Endpoint.SEARCH_COMPONENTS, this::searchComponentsPages, NexusJson.COMPONENT, RepositoryIndex::searchComponents, SearchOrder.of( q ) ).stream();
+	}
+
+	/**
+	 * Lazy variant of {@link #listAssets(String)}, see
+	 * {@link #searchAssetsStream(Query)}
+	 *
+	 * @param repository
+	 *            - the repository of interest
+	 * @return a lazily populated stream of the assets stored in the repository
+	 */
+	public Stream< Asset > listAssetsStream( String repository ) {
+		return this.< Asset >pages( Endpoint.LIST_ASSETS, listAssetsPages( repository ), NexusJson.ASSET ).stream();
+	}
+
+	/**
+	 * Lazy variant of {@link #listComponents(String)}, see
+	 * {@link #searchAssetsStream(Query)}
+	 *
+	 * @param repository
+	 *            - the repository of interest
+	 * @return a lazily populated stream of the components stored in the
+	 *         repository
+	 */
+	public Stream< Component > listComponentsStream( String repository ) {
+		return this.< Component >pages( Endpoint.LIST_COMPONENTS, listComponentsPages( repository ), NexusJson.COMPONENT ).stream();
+	}
+
+	/**
+	 * Build or update the local index of a repository, in the
+	 * {@link NexusClientConfig#setIndexDirectory(String) index directory}.
+	 * From then on, searches restricted to the repository are evaluated
+	 * against the index, without contacting the server, so they only see the
+	 * repository as it was at the last refresh. Other searches, and those
+	 * using wildcards, still go to the server.
+	 *
+	 * The whole repository is listed, since the server does not report what
+	 * changed, but the index is only rewritten if something did, and searches
+	 * keep using the previous index until the new one is in place.
+	 *
+	 * @param repository
+	 *            - the repository to index
+	 * @return true if the index was written, false if it was up to date
+	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if no index directory is configured, or a RuntimeException or IOException is encountered.
+	 */
+	public boolean refreshIndex( String repository ) throws NexusReSTClientException {
+		if ( index == null ) throw new NexusReSTClientException( "No index directory configured" );
+		List< Component > components = lister( Endpoint.LIST_COMPONENTS, listComponentsPages( repository ), NexusJson.COMPONENT );
+		try {
+			return index.refresh( repository, components );
+		} catch ( IOException e ) {
+			throw new NexusReSTClientException( e );
+		}
+	}
+
+	/**
+	 * Asynchronous view of this session, running each call on a thread of
+	 * its own so that the work the call hands to the session's executor never
+	 * waits behind it.
+	 *
+	 * @return the {@link NexusAsyncClient} of this session
+	 */
+	public synchronized NexusAsyncClient async() {
+		if ( async == null ) async = new NexusAsyncClient( this );
+		return async;
+	}
+
+	/**
+	 * Release the pooled connections. The session cannot be used afterwards.
+	 */
+	@Override
+	public void close() {
+		client.close();
+		synchronized ( this ) {
+			if ( executor != null && executor != config.getExecutor() ) executor.shutdownNow();
+			if ( asyncExecutor != null ) asyncExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return the bounded fan-out shared by all bulk operations of this
+	 *         session
+	 */
+	synchronized Bulk bulk() {
+		if ( bulk == null ) bulk = new Bulk( executor(), config.getMaxConcurrency() );
+		return bulk;
+	}
+
+	BasicAuthentication authentication() {
+		return authentication;
+	}
+
+	/**
+	 * @return the configured executor, or one owned by this session: virtual
+	 *         threads if requested and supported, else a pool of daemon
+	 *         threads
+	 */
+	synchronized ExecutorService executor() {
+		if ( executor == null ) {
+			executor = config.getExecutor();
+			if ( executor == null && config.isVirtualThreads() ) executor = Bulk.newVirtualThreadExecutor();
+			if ( executor == null ) executor = newThreadPool();
+		}
+		return executor;
+	}
+
+	/**
+	 * @return the executor owned by this session that runs the calls of
+	 *         {@link #async()}: virtual threads if requested and supported,
+	 *         else a pool of daemon threads. Unlike {@link #executor()}, it is
+	 *         never the configured executor, whose threads the calls would
+	 *         otherwise hold while waiting on the work they submit to it.
+	 */
+	synchronized ExecutorService asyncExecutor() {
+		if ( asyncExecutor == null ) {
+			if ( config.isVirtualThreads() ) asyncExecutor = Bulk.newVirtualThreadExecutor();
+			if ( asyncExecutor == null ) asyncExecutor = newThreadPool();
+		}
+		return asyncExecutor;
+	}
+
+	private static ExecutorService newThreadPool() {
+		return Executors.newCachedThreadPool( runnable -> {
+			Thread thread = new Thread( runnable, "nexus-client-" + THREADS.incrementAndGet() );
+			thread.setDaemon( true );
+			return thread;
+		} );
+	}
+
+	Asset fetchAsset( String assetId ) throws NexusReSTClientException {
+		try {
+			return document( Type.ASSET, assetId, ( etag, lastModified ) -> restClient.getAsset( assetId, etag, lastModified ), NexusJson.ASSET );
+		} catch ( RuntimeException | IOException e ) {
+			throw new NexusReSTClientException( e );
+		}
+	}
+
+	Component fetchComponent( String componentId ) throws NexusReSTClientException {
+		try {
+			return document( Type.COMPONENT, componentId, ( etag, lastModified ) -> restClient.getComponent( componentId, etag, lastModified ), NexusJson.COMPONENT );
+		} catch ( RuntimeException | IOException e ) {
+			throw new NexusReSTClientException( e );
+		}
+	}
+
+	/**
+	 * @return the local index that can answer the query, or null to ask the
+	 *         server
+	 */
+	private RepositoryIndex index( Query q, String repository ) {
+		if ( index == null || repository == null || !RepositoryIndex.supports( q ) ) return null;
+		return index.get( repository );
+	}
+
+	private < T > FanOut< T > fanOut( Query q, Collection< String > repositories, Endpoint endpoint, BiFunction< Query, String, Function< String, InputStream > > pageFunction,
+			ObjectReader itemReader, BiFunction< RepositoryIndex, Query, List< T > > search, Comparator< ? super T > order ) {
+		Map< String, Iterator< T > > sources = new LinkedHashMap<>();
+		for ( String repository : repositories ) {
+			RepositoryIndex local = index( q, repository );
+			if ( local != null ) sources.put( repository, search.apply( local, q ).iterator() );
+			else sources.put( repository, new PageIterator< T >( pageFunction.apply( q, repository ), itemReader, retry, endpoint, metrics ) );
+		}
+		return new FanOut<>( sources, order, FAN_OUT_BUFFER, executor() );
+	}
+
+	/**
+	 * Fetch a single JSON document through the metadata cache, if any. An
+	 * expired entry is revalidated with a conditional request, so an
+	 * unchanged document costs a round trip but no transfer.
+	 */
+	private < T > T document( Type type, String key, ConditionalRequest request, ObjectReader reader ) throws IOException {
+		MetadataCache metadata = config.getMetadataCache();
+		CachedMetadata< T > stale = null;
+		if ( metadata != null ) {
+			CachedMetadata< T > fresh = metadata.get( type, key );
+			if ( fresh != null ) return fresh.getValue();
+			stale = metadata.getStale( type, key );
+		}
+		if ( retry == null ) return fetch( type, key, request, reader, stale );
+		CachedMetadata< T > known = stale;
+		return retry.call( () -> fetch( type, key, request, reader, known ) );
+	}
+
+	/**
+	 * Request a document, conditionally if a stale copy can be revalidated,
+	 * and cache it.
+	 */
+	private < T > T fetch( Type type, String key, ConditionalRequest request, ObjectReader reader, CachedMetadata< T > stale ) throws IOException {
+		MetadataCache metadata = config.getMetadataCache();
+		boolean conditional = stale != null && stale.isValidated();
+		Response response = conditional ? request.get( stale.getEtag(), stale.getLastModified() ) : request.get( null, null );
+		try {
+			if ( conditional && response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode() ) {
+				metadata.put( type, key, stale );
+				return stale.getValue();
+			}
+			if ( response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL )
+				ClientInvocation.handleErrorStatus( response );
+			T value = reader.readValue( response.readEntity( String.class ) );
+			if ( metadata != null )
+				metadata.put( type, key, new CachedMetadata<>( value, response.getHeaderString( HttpHeaders.ETAG ), response.getHeaderString( HttpHeaders.LAST_MODIFIED ) ) );
+			return value;
+		} finally {
+			response.close();
+		}
+	}
+
+	< T > T cached( Type type, String key ) {
+		MetadataCache metadata = config.getMetadataCache();
+		CachedMetadata< T > entry = ( metadata == null ) ? null : metadata.get( type, key );
+		return ( entry == null ) ? null : entry.getValue();
+	}
+
+	/**
+	 * @return the result, read-only if it was cached as it is then shared
+	 */
+	< T > List< T > cacheQuery( String key, List< T > result ) {
+		MetadataCache metadata = config.getMetadataCache();
+		if ( metadata == null ) return result;
+		result = Collections.unmodifiableList( result );
+		metadata.put( Type.QUERY, key, new CachedMetadata<>( result, null, null ) );
+		return result;
+	}
+
+	/**
+	 * Drop the cached metadata a deleted asset may appear in: its own, that
+	 * of components (which list their assets) and query results.
+	 */
+	void invalidateAsset( String assetId ) {
+		MetadataCache metadata = config.getMetadataCache();
+		if ( metadata == null ) return;
+		metadata.invalidate( Type.ASSET, assetId );
+		metadata.invalidateAll( Type.COMPONENT );
+		metadata.invalidateAll( Type.QUERY );
+	}
+
+	/**
+	 * Drop the cached metadata of a deleted component, of its assets and
+	 * query results.
+	 */
+	void invalidateComponent( String componentId ) {
+		MetadataCache metadata = config.getMetadataCache();
+		if ( metadata == null ) return;
+		CachedMetadata< Component > component = metadata.getStale( Type.COMPONENT, componentId );
+		if ( component != null && component.getValue().getAssets() != null ) {
+			for ( Asset asset : component.getValue().getAssets() )
+				metadata.invalidate( Type.ASSET, asset.getId() );
+		} else {
+			metadata.invalidateAll( Type.ASSET );
+		}
+		metadata.invalidate( Type.COMPONENT, componentId );
+		metadata.invalidateAll( Type.QUERY );
+	}
+
+	void invalidateQueries() {
+		MetadataCache metadata = config.getMetadataCache();
+		if ( metadata != null ) metadata.invalidateAll( Type.QUERY );
+	}
+
+	/**
+	 * @return the key search results are cached under
+	 */
+	static String key( String path, Query q ) {
+		return String.join( "\n", path,
+				String.valueOf( q.getSortBy() ),
+				String.valueOf( q.getOrderBy() ),
+				String.valueOf( q.getKeyword() ),
+				String.valueOf( q.getRepository() ),
+				String.valueOf( q.getFormat() ),
+				String.valueOf( q.getComponentGroup() ),
+				String.valueOf( q.getComponentName() ),
+				String.valueOf( q.getComponentVersion() ),
+				String.valueOf( q.getMavenGroupId() ),
+				String.valueOf( q.getMavenArtifactId() ),
+				String.valueOf( q.getMavenBaseVersion() ),
+				String.valueOf( q.getMavenExtension() ) );
+	}
+
+	private BulkDeleteReport deleteAll( Collection< String > ids, Deletion delete ) throws NexusReSTClientException {
+		List< CompletableFuture< BulkDeleteReport.Outcome > > deletions;
+		try {
+			deletions = bulk().submitAll( ids, id -> {
+				try {
+					delete.delete( id );
+					return new BulkDeleteReport.Outcome( id, BulkDeleteReport.Status.DELETED, null );
+				} catch ( NexusReSTClientException e ) {
+					if ( e.getHttpErrorCode() == Response.Status.NOT_FOUND.getStatusCode() )
+						return new BulkDeleteReport.Outcome( id, BulkDeleteReport.Status.NOT_FOUND, null );
+					return new BulkDeleteReport.Outcome( id, BulkDeleteReport.Status.FAILED, e );
+				}
+			} );
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new NexusReSTClientException( e );
+		}
+		List< BulkDeleteReport.Outcome > outcomes = new ArrayList<>( deletions.size() );
+		int i = 0;
+		for ( String id : ids ) {
+			try {
+				outcomes.add( deletions.get( i++ ).join() );
+			} catch ( CompletionException e ) {
+				outcomes.add( new BulkDeleteReport.Outcome( id, BulkDeleteReport.Status.FAILED, Bulk.failure( e ) ) );
+			}
+		}
+		return new BulkDeleteReport( outcomes );
+	}
+
+	/**
+	 * Send each request, at most {@link NexusClientConfig#setMaxConcurrency(int)}
+	 * at a time, and report the outcome of everything it carried.
+	 *
+	 * @param form
+	 *            - builds the body of a request
+	 * @param names
+	 *            - what a request carries, as listed in the report
+	 */
+	private < T > BulkUploadReport uploadAll( String repository, List< T > requests, Bulk.Task< T, MultipartEntity > form, Function< T, List< String > > names ) throws NexusReSTClientException {
+		List< CompletableFuture< Void > > uploads;
+		try {
+			uploads = bulk().submitAll( requests, request -> {
+				upload( repository, form.apply( request ) );
+				return null;
+			} );
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new NexusReSTClientException( e );
+		}
+		List< BulkUploadReport.Outcome > outcomes = new ArrayList<>();
+		try {
+			for ( int i = 0; i < requests.size(); i++ ) {
+				NexusReSTClientException error = null;
+				try {
+					uploads.get( i ).join();
+				} catch ( CompletionException e ) {
+					error = Bulk.failure( e );
+				}
+				for ( String name : names.apply( requests.get( i ) ) ) {
+					outcomes.add( new BulkUploadReport.Outcome( name,
+							( error == null ) ? BulkUploadReport.Status.UPLOADED : BulkUploadReport.Status.FAILED, error ) );
+				}
+			}
+		} finally {
+			invalidateQueries();
+		}
+		return new BulkUploadReport( outcomes );
+	}
+
+	/**
+	 * The multipart form of a maven2 component. The files are named after
+	 * the coordinates; the server only goes by their classifier and
+	 * extension.
+	 */
+	private MultipartEntity maven2Form( Maven2UploadForm form ) throws IOException {
+		MultipartEntity body = new MultipartEntity();
+		if ( form.getGroupId() != null ) body.addText( "maven2.groupId", form.getGroupId() );
+		if ( form.getArtifactId() != null ) body.addText( "maven2.artifactId", form.getArtifactId() );
+		if ( form.getVersion() != null ) body.addText( "maven2.version", form.getVersion() );
+		if ( form.getPackaging() != null ) body.addText( "maven2.packaging", form.getPackaging() );
+		if ( form.isGeneratePom() ) body.addText( "maven2.generate-pom", "true" );
+		int n = 1;
+		for ( Maven2UploadForm.Artifact artifact : form.getAssets() ) {
+			String name = "maven2.asset" + n++;
+			String fileName = maven2FileName( form, artifact );
+			body.addFile( name, ( artifact.getFile() != null ) ? new UploadEntry( fileName, artifact.getFile() ) : new UploadEntry( fileName, artifact.getData() ) );
+			if ( artifact.getClassifier() != null ) body.addText( name + ".classifier", artifact.getClassifier() );
+			body.addText( name + ".extension", artifact.getExtension() );
+		}
+		return body;
+	}
+
+	/**
+	 * The name of a file of a maven2 component, after its coordinates. When
+	 * they are left out for the pom to supply, the name of the file on disk is
+	 * kept, or for a stream a placeholder with the classifier and extension.
+	 */
+	private static String maven2FileName( Maven2UploadForm form, Maven2UploadForm.Artifact artifact ) {
+		if ( form.getArtifactId() == null || form.getVersion() == null ) {
+			if ( artifact.getFile() != null ) return artifact.getFile().getFileName().toString();
+			return "artifact" + ( ( artifact.getClassifier() != null ) ? "-" + artifact.getClassifier() : "" ) + "." + artifact.getExtension();
+		}
+		return form.getArtifactId() + "-" + form.getVersion()
+				+ ( ( artifact.getClassifier() != null ) ? "-" + artifact.getClassifier() : "" ) + "." + artifact.getExtension();
+	}
+
+	/**
+	 * POST a multipart form to the components endpoint, straight through the
+	 * pooled HTTP client so the body is streamed. The body is only sent once
+	 * the server has accepted the request headers (Expect: 100-continue), so
+	 * an upload that is refused, for lack of permission or because it is too
+	 * large, is not transferred in vain.
+	 */
+	private void upload( String repository, MultipartEntity body ) throws NexusReSTClientException {
+		HttpPost post = new HttpPost( UriBuilder.fromUri( baseURL ).path( "service/rest/v1/components" ).queryParam( "repository", repository ).build() );
+		if ( authorization != null ) post.setHeader( HttpHeaders.AUTHORIZATION, authorization );
+		RequestConfig defaults = ( httpClient instanceof Configurable ) ? ( ( Configurable ) httpClient ).getConfig() : RequestConfig.DEFAULT;
+		post.setConfig( RequestConfig.copy( defaults ).setExpectContinueEnabled( true ).build() );
+		post.setEntity( ( metrics == null ) ? body : MeteredEngine.counting( body, metrics ) );
+		long start = System.nanoTime();
+		int status = 0;
+		try {
+			HttpResponse response = httpClient.execute( post );
+			try {
+				status = response.getStatusLine().getStatusCode();
+				if ( status / 100 != 2 ) ClientInvocation.handleErrorStatus( Response.status( status ).build() );
+			} finally {
+				EntityUtils.consumeQuietly( response.getEntity() );
+			}
+		} catch ( RuntimeException | IOException e ) {
+			throw new NexusReSTClientException( e );
+		} finally {
+			body.discard();
+			if ( metrics != null ) {
+				metrics.requestCompleted( Endpoint.UPLOAD, HttpPost.METHOD_NAME, status, System.nanoTime() - start );
+				MeteredEngine.reportPool( pool, metrics );
+			}
+		}
+	}
+
+	private < T > PageIterator< T > pages( Endpoint endpoint, Function< String, InputStream > pageFunction, ObjectReader itemReader ) {
+		if ( config.getPrefetchDepth() > 0 )
+			return new PrefetchingPageIterator<>( pageFunction, itemReader, retry, endpoint, metrics, config.getPrefetchDepth(), executor() );
+		return new PageIterator<>( pageFunction, itemReader, retry, endpoint, metrics );
+	}
+
+	private < T > List< T > lister( Endpoint endpoint, Function< String, InputStream > pageFunction, ObjectReader itemReader ) throws NexusReSTClientException {
+		try (PageIterator< T > pages = pages( endpoint, pageFunction, itemReader )) {
+			List< T > result = new ArrayList<>();
+			pages.forEachRemaining( result::add );
+			return result;
+		} catch ( UncheckedNexusReSTClientException e ) {
+			throw e.getCause();
+		}
+	}
+
+	private < T > List< T > cachedLister( String key, Endpoint endpoint, Function< String, InputStream > pageFunction, ObjectReader itemReader ) throws NexusReSTClientException {
+		List< T > result = cached( Type.QUERY, key );
+		if ( result != null ) return result;
+		return cacheQuery( key, lister( endpoint, pageFunction, itemReader ) );
+	}
+
+	private Function< String, InputStream > searchAssetsPages( Query q, String repository ) {
+		return token -> restClient.searchAssetsAsStream(
+					q.getSortBy(),
+					q.getOrderBy(),
+					q.getKeyword(),
+					repository,
+					q.getFormat(),
+					q.getComponentGroup(),
+					q.getComponentName(),
+					q.getComponentVersion(),
+					q.getMavenGroupId(),
+					q.getMavenArtifactId(),
+					q.getMavenBaseVersion(),
+					q.getMavenExtension(),
+					token );
+	}
+
+	private Function< String, InputStream > searchComponentsPages( Query q, String repository ) {
+		return token -> restClient.searchComponentsAsStream(
+					q.getSortBy(),
+					q.getOrderBy(),
+					q.getKeyword(),
+					repository,
+					q.getFormat(),
+					q.getComponentGroup(),
+					q.getComponentName(),
+					q.getComponentVersion(),
+					q.getMavenGroupId(),
+					q.getMavenArtifactId(),
+					q.getMavenBaseVersion(),
+					q.getMavenExtension(),
+					token );
+	}
+
+	private Function< String, InputStream > listAssetsPages( String repository ) {
+		return token -> restClient.listAssetsAsStream( repository, token );
+	}
+
+	private Function< String, InputStream > listComponentsPages( String repository ) {
+		return token -> restClient.listComponentsAsStream( repository, token );
+	}
+
+	File saveAsset( Asset asset, String downloadDir ) throws IOException {
+
+		return saveAsset( asset, target( asset, downloadDir ), downloader );
+	}
+
+	/**
+	 * @return where an asset is saved in a download directory: under the file
+	 *         name of its download URL
+	 */
+	private static Path target( Asset asset, String downloadDir ) {
+		String url = asset.getDownloadUrl();
+		return Paths.get( downloadDir, url.substring( url.lastIndexOf( '/' ) + 1 ) );
+	}
+
+	File saveAsset( Asset asset, Path target, Downloader downloader ) throws IOException {
+
+		String url = asset.getDownloadUrl();
+		ArtifactCache.Key key = ( cache == null ) ? null : ArtifactCache.key( asset.getChecksum() );
+		if ( key == null ) return downloader.download( url, target, asset.getChecksum() );
+
+		try {
+			if ( cache.copyTo( key, target ) ) return target.toFile();
+		} catch ( IOException e ) {
+			// an unusable cache must not prevent the download
+		}
+		// verified against the cache key, so the entry can be trusted
+		File file = downloader.download( url, target, key.algorithm, key.digest );
+		try {
+			cache.add( key, file.toPath() );
+		} catch ( IOException e ) {
+			// the download itself succeeded
+		}
+		return file;
+	}
+
+	/**
+	 * Download the assets of a component concurrently, at most
+	 * {@link NexusClientConfig#setComponentParallelism(int)} at a time. If any
+	 * of them fails, the downloads not yet started are skipped and the files
+	 * this call created are deleted, so either all assets are saved or none;
+	 * files that were there before are left in place.
+	 *
+	 * The calling thread works through the assets along with helpers on the
+	 * executor, claiming the next asset as it finishes one, so the download
+	 * completes even if the executor has no thread to spare, e.g. when called
+	 * from one of its tasks.
+	 *
+	 * @throws NexusReSTClientException
+	 *             also if two assets would be saved under the same file name
+	 */
+	List< File > saveComponent( Component component, String downloadDir ) throws NexusReSTClientException {
+
+		List< Asset > assets = component.getAssets();
+		int count = assets.size();
+		List< Path > targets = new ArrayList<>( count );
+		for ( Asset asset : assets ) {
+			Path target = target( asset, downloadDir );
+			int other = targets.indexOf( target );
+			if ( other >= 0 ) throw new NexusReSTClientException( "Assets " + assets.get( other ).getPath() + " and " + asset.getPath() + " of component "
+					+ component.getId() + " would both be saved as " + target.getFileName() );
+			targets.add( target );
+		}
+
+		File[] files = new File[ count ];
+		boolean[] created = new boolean[ count ];
+		AtomicInteger next = new AtomicInteger();
+		AtomicReference< Exception > failure = new AtomicReference<>();
+		CountDownLatch done = new CountDownLatch( count );
+		Runnable worker = () -> {
+			int i;
+			while ( ( i = next.getAndIncrement() ) < count ) {
+				try {
+					if ( failure.get() == null ) {
+						Path target = targets.get( i );
+						created[ i ] = !Files.exists( target );
+						files[ i ] = saveAsset( assets.get( i ), target, downloader );
+					}
+				} catch ( Exception e ) {
+					failure.compareAndSet( null, e );
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+		List< Future< ? > > helpers = new ArrayList<>();
+		try {
+			try {
+				for ( int i = 1; i < Math.min( count, config.getComponentParallelism() ); i++ )
+					helpers.add( executor().submit( worker ) );
+			} catch ( RejectedExecutionException e ) {
+				// the calling thread does the rest
+			}
+			worker.run();
+			done.await();
+		} catch ( InterruptedException e ) {
+			failure.compareAndSet( null, e );
+			Thread.currentThread().interrupt();
+		} finally {
+			for ( Future< ? > helper : helpers )
+				helper.cancel( true );
+		}
+		if ( failure.get() != null ) {
+			for ( int i = 0; i < count; i++ ) {
+				if ( created[ i ] && files[ i ] != null ) files[ i ].delete();
+			}
+			throw Bulk.failure( failure.get() );
+		}
+		return new ArrayList<>( Arrays.asList( files ) );
+	}
+
+	@FunctionalInterface
+	private interface Deletion {
+
+		void delete( String id ) throws NexusReSTClientException;
+	}
+
+	@FunctionalInterface
+	private interface ConditionalRequest {
+
+		Response get( String etag, String lastModified );
+	}
+}
@@ -0,0 +1,387 @@
+package org.scijava.nexus.v1.client;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Tuning parameters for a {@link NexusClient}. All values have sensible
+ * defaults, so only those that matter to the caller need to be set.
+ *
+ * @author agent
+ *
+ */
+
+public class NexusClientConfig {
+
+	private int connectionPoolSize = 20;
+	private int maxPooledPerRoute = 10;
+	private long connectionTTL = -1;
+	private long connectTimeout = -1;
+	private long readTimeout = -1;
+	private long connectionCheckoutTimeout = -1;
+	private int prefetchDepth = 0;
+	private ExecutorService executor;
+	private boolean virtualThreads = false;
+	private int maxConcurrency = 10;
+	private int componentParallelism = 4;
+	private boolean resumeDownloads = false;
+	private boolean revalidateDownloads = false;
+	private int downloadSegments = 1;
+	private long segmentThreshold = 64L << 20;
+	private ChecksumAlgorithm checksumAlgorithm = ChecksumAlgorithm.SHA1;
+	private String cacheDirectory;
+	private long cacheMaxSize = 10L << 30;
+	private MetadataCache metadataCache;
+	private int assetsPerUpload = 3;
+	private String indexDirectory;
+	private RetryPolicy retryPolicy;
+	private MetricsListener metricsListener;
+
+	public int getConnectionPoolSize() {
+		return connectionPoolSize;
+	}
+
+	/**
+	 *
+	 * @param connectionPoolSize
+	 *            - maximum number of pooled keep-alive connections, across all
+	 *            hosts
+	 */
+	public void setConnectionPoolSize( int connectionPoolSize ) {
+		this.connectionPoolSize = connectionPoolSize;
+	}
+
+	public int getMaxPooledPerRoute() {
+		return maxPooledPerRoute;
+	}
+
+	/**
+	 *
+	 * @param maxPooledPerRoute
+	 *            - maximum number of pooled connections to a single host
+	 */
+	public void setMaxPooledPerRoute( int maxPooledPerRoute ) {
+		this.maxPooledPerRoute = maxPooledPerRoute;
+	}
+
+	public long getConnectionTTL() {
+		return connectionTTL;
+	}
+
+	/**
+	 *
+	 * @param connectionTTL
+	 *            - time to live of a pooled connection in milliseconds, -1 to
+	 *            keep connections for as long as the server allows
+	 */
+	public void setConnectionTTL( long connectionTTL ) {
+		this.connectionTTL = connectionTTL;
+	}
+
+	public long getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 *
+	 * @param connectTimeout
+	 *            - connect timeout in milliseconds, -1 for the system default
+	 */
+	public void setConnectTimeout( long connectTimeout ) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	public long getReadTimeout() {
+		return readTimeout;
+	}
+
+	/**
+	 *
+	 * @param readTimeout
+	 *            - socket read timeout in milliseconds, -1 for the system
+	 *            default
+	 */
+	public void setReadTimeout( long readTimeout ) {
+		this.readTimeout = readTimeout;
+	}
+
+	public long getConnectionCheckoutTimeout() {
+		return connectionCheckoutTimeout;
+	}
+
+	/**
+	 *
+	 * @param connectionCheckoutTimeout
+	 *            - how long to wait in milliseconds for a free pooled
+	 *            connection, -1 to wait indefinitely
+	 */
+	public void setConnectionCheckoutTimeout( long connectionCheckoutTimeout ) {
+		this.connectionCheckoutTimeout = connectionCheckoutTimeout;
+	}
+
+	public int getPrefetchDepth() {
+		return prefetchDepth;
+	}
+
+	/**
+	 *
+	 * @param prefetchDepth
+	 *            - number of result pages fetched ahead of the consumer of a
+	 *            search or listing, 0 to fetch each page only when needed
+	 */
+	public void setPrefetchDepth( int prefetchDepth ) {
+		this.prefetchDepth = prefetchDepth;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 *
+	 * @param executor
+	 *            - runs the client's background and bulk work, such as page
+	 *            prefetching, segmented downloads and bulk operations.
+	 *            Downloads and listings do on the calling thread what the
+	 *            executor has no thread for, but bulk operations wait for
+	 *            their items to run on it: it must not be bounded below
+	 *            {@link #setMaxConcurrency(int) the maximum concurrency},
+	 *            nor, if bounded, call a bulk operation from one of its own
+	 *            threads. If null, the client creates its own pool and shuts
+	 *            it down on close; a given executor is left running.
+	 */
+	public void setExecutor( ExecutorService executor ) {
+		this.executor = executor;
+	}
+
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 *
+	 * @param virtualThreads
+	 *            - if no executor is set, run the client's background and bulk
+	 *            work on one virtual thread per task. Requires Java 21 or
+	 *            later; older runtimes fall back to a pool of platform
+	 *            threads.
+	 */
+	public void setVirtualThreads( boolean virtualThreads ) {
+		this.virtualThreads = virtualThreads;
+	}
+
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	/**
+	 *
+	 * @param maxConcurrency
+	 *            - maximum number of blocking calls the bulk operations of a
+	 *            client run at once, across all of them. Raise
+	 *            {@link #setMaxPooledPerRoute(int)} along with it, or calls
+	 *            will queue for a connection.
+	 */
+	public void setMaxConcurrency( int maxConcurrency ) {
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	public int getComponentParallelism() {
+		return componentParallelism;
+	}
+
+	/**
+	 *
+	 * @param componentParallelism
+	 *            - maximum number of assets of a single component downloaded
+	 *            at the same time, 1 to download them one after another
+	 */
+	public void setComponentParallelism( int componentParallelism ) {
+		this.componentParallelism = componentParallelism;
+	}
+
+	public boolean isResumeDownloads() {
+		return resumeDownloads;
+	}
+
+	/**
+	 *
+	 * @param resumeDownloads
+	 *            - keep the partial file of an interrupted download next to its
+	 *            destination, and fetch only the missing bytes on the next
+	 *            attempt. Off by default, so a failed download leaves nothing
+	 *            behind.
+	 */
+	public void setResumeDownloads( boolean resumeDownloads ) {
+		this.resumeDownloads = resumeDownloads;
+	}
+
+	public boolean isRevalidateDownloads() {
+		return revalidateDownloads;
+	}
+
+	/**
+	 *
+	 * @param revalidateDownloads
+	 *            - record the ETag and Last-Modified date of each download in
+	 *            a hidden file next to it, and download to the same place with
+	 *            a conditional request, so an unchanged file is not
+	 *            transferred again. Off by default.
+	 */
+	public void setRevalidateDownloads( boolean revalidateDownloads ) {
+		this.revalidateDownloads = revalidateDownloads;
+	}
+
+	public int getDownloadSegments() {
+		return downloadSegments;
+	}
+
+	/**
+	 *
+	 * @param downloadSegments
+	 *            - number of byte ranges a large file is split into and
+	 *            downloaded concurrently, each over its own connection. 1, the
+	 *            default, downloads every file as a single stream; otherwise
+	 *            each download starts with a HEAD request to learn the size.
+	 */
+	public void setDownloadSegments( int downloadSegments ) {
+		this.downloadSegments = downloadSegments;
+	}
+
+	public long getSegmentThreshold() {
+		return segmentThreshold;
+	}
+
+	/**
+	 *
+	 * @param segmentThreshold
+	 *            - size in bytes from which a file is downloaded in segments,
+	 *            64 MiB by default
+	 */
+	public void setSegmentThreshold( long segmentThreshold ) {
+		this.segmentThreshold = segmentThreshold;
+	}
+
+	public ChecksumAlgorithm getChecksumAlgorithm() {
+		return checksumAlgorithm;
+	}
+
+	/**
+	 *
+	 * @param checksumAlgorithm
+	 *            - the digest computed while an asset is downloaded and compared
+	 *            with the one Nexus published for it, null not to verify
+	 *            downloads. Defaults to sha1, the cheapest of those Nexus
+	 *            provides.
+	 */
+	public void setChecksumAlgorithm( ChecksumAlgorithm checksumAlgorithm ) {
+		this.checksumAlgorithm = checksumAlgorithm;
+	}
+
+	public String getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	/**
+	 *
+	 * @param cacheDirectory
+	 *            - directory where downloaded assets are kept by checksum, so
+	 *            that later downloads of the same asset are linked from it
+	 *            instead of transferred. It may be shared by several clients
+	 *            and JVMs. Null, the default, disables the cache.
+	 */
+	public void setCacheDirectory( String cacheDirectory ) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	public long getCacheMaxSize() {
+		return cacheMaxSize;
+	}
+
+	/**
+	 *
+	 * @param cacheMaxSize
+	 *            - size in bytes of the cache directory beyond which the least
+	 *            recently used assets are evicted, 10 GiB by default
+	 */
+	public void setCacheMaxSize( long cacheMaxSize ) {
+		this.cacheMaxSize = cacheMaxSize;
+	}
+
+	public MetadataCache getMetadataCache() {
+		return metadataCache;
+	}
+
+	/**
+	 *
+	 * @param metadataCache
+	 *            - keeps the repositories, assets, components and query
+	 *            results fetched by the client for reuse, for instance a
+	 *            {@link LruMetadataCache}. Null, the default, fetches them on
+	 *            every call.
+	 */
+	public void setMetadataCache( MetadataCache metadataCache ) {
+		this.metadataCache = metadataCache;
+	}
+
+	public int getAssetsPerUpload() {
+		return assetsPerUpload;
+	}
+
+	/**
+	 *
+	 * @param assetsPerUpload
+	 *            - number of files sent in each request of a bulk upload, 3 by
+	 *            default as documented by Nexus for raw repositories
+	 */
+	public void setAssetsPerUpload( int assetsPerUpload ) {
+		this.assetsPerUpload = assetsPerUpload;
+	}
+
+	public String getIndexDirectory() {
+		return indexDirectory;
+	}
+
+	/**
+	 *
+	 * @param indexDirectory
+	 *            - directory of the local indexes built by
+	 *            {@link NexusClient#refreshIndex(String)}. Searches restricted
+	 *            to an indexed repository are answered from its index, without
+	 *            contacting the server. Null, the default, disables indexing.
+	 */
+	public void setIndexDirectory( String indexDirectory ) {
+		this.indexDirectory = indexDirectory;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 *
+	 * @param retryPolicy
+	 *            - how listings, searches and metadata requests are retried
+	 *            after a transient failure; a page of results is requested
+	 *            again with the same continuation token. Null, the default,
+	 *            fails on the first error.
+	 */
+	public void setRetryPolicy( RetryPolicy retryPolicy ) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	public MetricsListener getMetricsListener() {
+		return metricsListener;
+	}
+
+	/**
+	 *
+	 * @param metricsListener
+	 *            - receives the latency of every request, page and byte
+	 *            counts, retries and the state of the connection pool, for
+	 *            instance a {@link JmxMetricsListener}. Null, the default,
+	 *            takes no measurements.
+	 */
+	public void setMetricsListener( MetricsListener metricsListener ) {
+		this.metricsListener = metricsListener;
+	}
+}
@@ -0,0 +1,60 @@
+package org.scijava.nexus.v1.client;
+
+import java.util.Map;
+
+/**
+ * The measurements of a {@link JmxMetricsListener}, as exposed over JMX.
+ * Endpoints are keyed by their {@link MetricsListener.Endpoint} name. The
+ * connection counts are those last reported, by a single client.
+ *
+ * @author agent
+ */
+public interface NexusClientMetricsMXBean {
+
+	/**
+	 * @return the upper bounds, in milliseconds, of the latency histogram
+	 *         buckets but the last, which is unbounded
+	 */
+	long[] getLatencyBucketsMillis();
+
+	/**
+	 * @return by endpoint, the number of requests in each latency bucket
+	 */
+	Map< String, long[] > getLatencyHistograms();
+
+	Map< String, Long > getRequestCounts();
+
+	Map< String, Double > getMeanLatencyMillis();
+
+	/**
+	 * @return by HTTP status, the number of requests failed with it; 0 stands
+	 *         for the requests that got no response
+	 */
+	Map< Integer, Long > getErrorCounts();
+
+	/**
+	 * @return by HTTP status, the number of retried requests; 0 stands for
+	 *         connection errors
+	 */
+	Map< Integer, Long > getRetryCounts();
+
+	long getCircuitOpenings();
+
+	Map< String, Long > getPageCounts();
+
+	Map< String, Long > getItemCounts();
+
+	Map< String, Long > getCompletedListings();
+
+	long getBytesDownloaded();
+
+	long getBytesUploaded();
+
+	int getLeasedConnections();
+
+	int getPendingConnections();
+
+	int getAvailableConnections();
+
+	int getMaxConnections();
+}
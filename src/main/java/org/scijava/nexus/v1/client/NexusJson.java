@@ -0,0 +1,79 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+import org.scijava.nexus.v1.client.domain.Asset;
+import org.scijava.nexus.v1.client.domain.Component;
+import org.scijava.nexus.v1.client.domain.Repository;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Shared JSON decoding for the Nexus ReST responses.
+ *
+ * The readers are immutable and thread-safe, so they are built once and
+ * reused by every {@link NexusClient}. The domain objects only map the
+ * attributes deemed useful, hence unknown properties are ignored.
+ *
+ * @author agent
+ */
+final class NexusJson {
+
+	static final String ITEMS = "items";
+	static final String CTOKEN = "continuationToken";
+
+	static final ObjectMapper MAPPER = new ObjectMapper()
+			.configure( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false );
+
+	static final ObjectReader ASSET = MAPPER.readerFor( Asset.class );
+	static final ObjectReader COMPONENT = MAPPER.readerFor( Component.class );
+	static final ObjectReader REPOSITORIES = MAPPER.readerFor( Repository[].class );
+
+	private NexusJson() {}
+
+	/**
+	 * Decode one page of a paginated response in a single pass: every element
+	 * of {@code items} is bound straight to its domain object and handed to
+	 * the sink, while {@code continuationToken} is picked up on the way.
+	 *
+	 * @param in
+	 *            - the response body; it is closed once the page is read
+	 * @param itemReader
+	 *            - reader bound to the item type
+	 * @param sink
+	 *            - receives each decoded item, in order
+	 * @return the continuation token, or null if this was the last page
+	 * @throws IOException
+	 *             if the body cannot be read or is not a page object
+	 */
+	static < T > String readPage( InputStream in, ObjectReader itemReader, Consumer< ? super T > sink ) throws IOException {
+		String continuationToken = null;
+		try (JsonParser parser = MAPPER.getFactory().createParser( in )) {
+			if ( parser.nextToken() != JsonToken.START_OBJECT )
+				throw new JsonParseException( parser, "Expected a page object" );
+			while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ( ITEMS.equals( field ) && value == JsonToken.START_ARRAY ) {
+					while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+						if ( parser.currentToken() == JsonToken.VALUE_NULL ) continue;
+						T item = itemReader.readValue( parser );
+						sink.accept( item );
+					}
+				} else if ( CTOKEN.equals( field ) ) {
+					continuationToken = ( value == JsonToken.VALUE_NULL ) ? null : parser.getText();
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+		return continuationToken;
+	}
+}
@@ -1,44 +1,43 @@
 package org.scijava.nexus.v1.client;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.net.URL;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.BiFunction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
-import javax.ws.rs.RedirectionException;
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
-
-import org.jboss.resteasy.client.jaxrs.ResteasyWebTarget;
-import org.jboss.resteasy.client.jaxrs.internal.BasicAuthentication;
 import org.scijava.nexus.v1.client.domain.Asset;
 import org.scijava.nexus.v1.client.domain.Component;
 import org.scijava.nexus.v1.client.domain.ComponentUploadForm;
 import org.scijava.nexus.v1.client.domain.Query;
 import org.scijava.nexus.v1.client.domain.Repository;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /**
+ * Static entry points to the Nexus ReST API.
+ *
+ * Each method delegates to a shared {@link NexusClient} per base URL and
+ * credentials, so repeated calls reuse the same pooled connections. Shared
+ * sessions are closed once unused for a few minutes, or when too many are
+ * open. Create a {@link NexusClient} directly to control the pool size or to
+ * close the connections explicitly.
+ *
  * @author turekg
  */
 public class NexusReSTClient {
 
-	private static final String TMPDIR = System.getProperty( "java.io.tmpdir" );
-	private static final String ITEMS = "items";
-	private static final String CTOKEN = "continuationToken";
+	/** Shared sessions kept open at most, beyond which idle ones are closed */
+	private static final int MAX_SESSIONS = 16;
+	/** Nanoseconds after which an unused shared session is closed */
+	private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toNanos( 5 );
+	/** Shared sessions by server and credentials, least recently used first */
+	private static final Map< String, Session > SESSIONS = new LinkedHashMap<>( 16, 0.75f, true );
 
 	private NexusReSTClient() {}
 
@@ -56,22 +55,7 @@ public class NexusReSTClient {
 	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a Runtime or IOException is encountered.
 	 */
 	public static List< Repository > listRepositories( String baseURL ) throws NexusReSTClientException {
-		Client client = null;
-		try {
-			client = ClientBuilder.newClient();
-			ResteasyWebTarget webTarget = ( ResteasyWebTarget ) client.target( baseURL );
-			NexusReSTClientProxy restClient = webTarget.proxy( NexusReSTClientProxy.class );
-			String response = restClient.listRepositories();
-			ObjectMapper mapper = new ObjectMapper();
-			mapper.configure( DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY, true );
-			mapper.configure( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false );
-			return Arrays.asList( mapper.readValue( response, Repository[].class ) );
-		} catch ( RuntimeException | IOException e ) {
-			throw new NexusReSTClientException( e );
-		}
-		finally {
-			if ( client != null ) client.close();
-		}
+		return call( baseURL, null, null, NexusClient::listRepositories );
 	}
 
 	/**
@@ -86,66 +70,8 @@ public class NexusReSTClient {
 	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException or IOException is encountered.
 	 * 
 	 */
-	@SuppressWarnings( "unchecked" )
 	public static List< Asset > searchAssets( String baseURL, Query q ) throws NexusReSTClientException {
-		List< Asset > result = new ArrayList<>();
-		Client client = null;
-		try {
-			client = ClientBuilder.newClient();
-			ResteasyWebTarget webTarget = ( ResteasyWebTarget ) client.target( baseURL );
-			NexusReSTClientProxy restClient = webTarget.proxy( NexusReSTClientProxy.class );
-
-			boolean begin = true;
-			String continuationToken = "";
-			String response;
-
-			ObjectMapper mapper = new ObjectMapper();
-			mapper.configure( DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY, true );
-			while ( continuationToken != null ) {
-				if ( begin ) {
-					response = restClient.searchAssets(
-							q.getSortBy(),
-							q.getOrderBy(),
-							q.getKeyword(),
-							q.getRepository(),
-							q.getFormat(),
-							q.getComponentGroup(),
-							q.getComponentName(),
-							q.getComponentVersion(),
-							q.getMavenGroupId(),
-							q.getMavenArtifactId(),
-							q.getMavenBaseVersion(),
-							q.getMavenExtension(),
-							null );
-					begin = false;
-				} else {
-					response = restClient.searchAssets(
-							q.getSortBy(),
-							q.getOrderBy(),
-							q.getKeyword(),
-							q.getRepository(),
-							q.getFormat(),
-							q.getComponentGroup(),
-							q.getComponentName(),
-							q.getComponentVersion(),
-							q.getMavenGroupId(),
-							q.getMavenArtifactId(),
-							q.getMavenBaseVersion(),
-							q.getMavenExtension(),
-							continuationToken );
-				}
-				Map< String, Object > map = mapper.readValue( response, Map.class );
-				result.addAll( mapper.convertValue( map.get( ITEMS ), new TypeReference< List< Asset > >() {} ) );
-				continuationToken = ( String ) map.get( CTOKEN );
-			}
-			return result;
-
-		} catch ( RuntimeException | IOException e ) {
-			throw new NexusReSTClientException( e );
-		}
-		finally {
-			if ( client != null ) client.close();
-		}
+		return call( baseURL, null, null, client -> client.searchAssets( q ) );
 	}
 
 	/**
@@ -174,43 +100,7 @@ public class NexusReSTClient {
 	 * 
 	 */
 	public static File searchAssetsAndDownload( String baseURL, Query q, String fileName, String downloadDir ) throws NexusReSTClientException {
-		Client client = null;
-		try {
-			client = ClientBuilder.newClient();
-			ResteasyWebTarget webTarget = ( ResteasyWebTarget ) client.target( baseURL );
-			NexusReSTClientProxy restClient = webTarget.proxy( NexusReSTClientProxy.class );
-			restClient.searchAssetsAndDownload(
-					q.getSortBy(),
-					q.getOrderBy(),
-					q.getKeyword(),
-					q.getRepository(),
-					q.getFormat(),
-					q.getComponentGroup(),
-					q.getComponentName(),
-					q.getComponentVersion(),
-					q.getMavenGroupId(),
-					q.getMavenArtifactId(),
-					q.getMavenBaseVersion(),
-					q.getMavenExtension() );
-
-		} catch ( RedirectionException e ) {
-			URL url;
-			try {
-				url = e.getLocation().toURL();
-				String tmpPath = TMPDIR + File.separator + fileName;
-				String finalPath =
-						downloadDir + File.separator + fileName;
-				return saveToFile( url, tmpPath, finalPath );
-			} catch ( IOException e1 ) {
-				throw new NexusReSTClientException( e1 );
-			}
-		} catch ( RuntimeException e ) {
-			throw new NexusReSTClientException( e );
-		}
-		finally {
-			if ( client != null ) client.close();
-		}
-		return null;
+		return call( baseURL, null, null, client -> client.searchAssetsAndDownload( q, fileName, downloadDir ) );
 	}
 
 	/**
@@ -226,18 +116,7 @@ public class NexusReSTClient {
 	 * 
 	 */
 	public static List< Asset > listAssets( String baseURL, String repository ) throws NexusReSTClientException {
-		Client client = null;
-		try {
-			client = ClientBuilder.newClient();
-			ResteasyWebTarget webTarget = ( ResteasyWebTarget ) client.target( baseURL );
-			NexusReSTClientProxy restClient = webTarget.proxy( NexusReSTClientProxy.class );
-			return lister( repository, restClient::listAssets, new TypeReference< List< Asset > >() {} );
-		} catch ( RuntimeException e ) {
-			throw new NexusReSTClientException( e );
-		}
-		finally {
-			if ( client != null ) client.close();
-		}
+		return call( baseURL, null, null, client -> client.listAssets( repository ) );
 	}
 
 	/**
@@ -257,21 +136,7 @@ public class NexusReSTClient {
 			String baseURL,
 			String assetId,
 			String downloadDir ) throws NexusReSTClientException {
-		Client client = null;
-		try {
-			client = ClientBuilder.newClient();
-			ResteasyWebTarget webTarget = ( ResteasyWebTarget ) client.target( baseURL );
-			NexusReSTClientProxy restClient = webTarget.proxy( NexusReSTClientProxy.class );
-			String response = restClient.getAsset( assetId );
-			ObjectMapper mapper = new ObjectMapper();
-			Asset asset = mapper.readValue( response, Asset.class );
-			return saveAsset( asset.getDownloadUrl(), downloadDir );
-		} catch ( RuntimeException | IOException e ) {
-			throw new NexusReSTClientException( e );
-		}
-		finally {
-			if ( client != null ) client.close();
-		}
+		return call( baseURL, null, null, client -> client.getAsset( assetId, downloadDir ) );
 	}
 
 	/**
@@ -291,19 +156,10 @@ public class NexusReSTClient {
 	 * 
 	 */
 	public static void deleteAsset( String baseURL, String username, String password, String assetId ) throws NexusReSTClientException {
-		Client client = null;
-		try {
-			client = ClientBuilder.newClient();
-			ResteasyWebTarget webTarget = ( ResteasyWebTarget ) client.target( baseURL );
-			webTarget.register( new BasicAuthentication( username, password ) );
-			NexusReSTClientProxy restClient = webTarget.proxy( NexusReSTClientProxy.class );
-			restClient.deleteAsset( assetId );
-		} catch ( RuntimeException e ) {
-			throw new NexusReSTClientException( e );
-		}
-		finally {
-			if ( client != null ) client.close();
-		}
+		call( baseURL, username, password, client -> {
+			client.deleteAsset( assetId );
+			return null;
+		} );
 	}
 
 	/**
@@ -318,64 +174,8 @@ public class NexusReSTClient {
 	 * @return a list of {@link Component} or an empty list if none were found.
 	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException or IOException is encountered.
 	 */
-	@SuppressWarnings( "unchecked" )
 	public static List< Component > searchComponents( String baseURL, Query q ) throws NexusReSTClientException {
-		List< Component > result = new ArrayList<>();
-		Client client = null;
-		try {
-			client = ClientBuilder.newClient();
-			ResteasyWebTarget webTarget = ( ResteasyWebTarget ) client.target( baseURL );
-			NexusReSTClientProxy restClient = webTarget.proxy( NexusReSTClientProxy.class );
-
-			boolean begin = true;
-			String continuationToken = "";
-			String response;
-			ObjectMapper mapper = new ObjectMapper();
-			mapper.configure( DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY, true );
-			while ( continuationToken != null ) {
-				if ( begin ) {
-					response = restClient.searchComponents(
-							q.getSortBy(),
-							q.getOrderBy(),
-							q.getKeyword(),
-							q.getRepository(),
-							q.getFormat(),
-							q.getComponentGroup(),
-							q.getComponentName(),
-							q.getComponentVersion(),
-							q.getMavenGroupId(),
-							q.getMavenArtifactId(),
-							q.getMavenBaseVersion(),
-							q.getMavenExtension(),
-							null );
-					begin = false;
-				} else {
-					response = restClient.searchComponents(
-							q.getSortBy(),
-							q.getOrderBy(),
-							q.getKeyword(),
-							q.getRepository(),
-							q.getFormat(),
-							q.getComponentGroup(),
-							q.getComponentName(),
-							q.getComponentVersion(),
-							q.getMavenGroupId(),
-							q.getMavenArtifactId(),
-							q.getMavenBaseVersion(),
-							q.getMavenExtension(),
-							continuationToken );
-				}
-				Map< String, Object > map = mapper.readValue( response, Map.class );
-				result.addAll( mapper.convertValue( map.get( ITEMS ), new TypeReference< List< Component > >() {} ) );
-				continuationToken = ( String ) map.get( CTOKEN );
-			}
-			return result;
-		} catch ( RuntimeException | IOException e ) {
-			throw new NexusReSTClientException( e );
-		}
-		finally {
-			if ( client != null ) client.close();
-		}
+		return call( baseURL, null, null, client -> client.searchComponents( q ) );
 	}
 
 	/**
@@ -391,18 +191,7 @@ public class NexusReSTClient {
 	 */
 	public static List< Component >
 			listComponents( String baseURL, String repository ) throws NexusReSTClientException {
-		Client client = null;
-		try {
-			client = ClientBuilder.newClient();
-			ResteasyWebTarget webTarget = ( ResteasyWebTarget ) client.target( baseURL );
-			NexusReSTClientProxy restClient = webTarget.proxy( NexusReSTClientProxy.class );
-			return lister( repository, restClient::listComponents, new TypeReference< List< Component > >() {} );
-		} catch ( RuntimeException e ) {
-			throw new NexusReSTClientException( e );
-		}
-		finally {
-			if ( client != null ) client.close();
-		}
+		return call( baseURL, null, null, client -> client.listComponents( repository ) );
 	}
 
 	/**
@@ -423,19 +212,10 @@ public class NexusReSTClient {
 	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException is encountered.
 	 */
 	public static void deleteComponent( String baseURL, String username, String password, String componentId ) throws NexusReSTClientException {
-		Client client = null;
-		try {
-			client = ClientBuilder.newClient();
-			ResteasyWebTarget webTarget = ( ResteasyWebTarget ) client.target( baseURL );
-			webTarget.register( new BasicAuthentication( username, password ) );
-			NexusReSTClientProxy restClient = webTarget.proxy( NexusReSTClientProxy.class );
-			restClient.deleteComponent( componentId );
-		} catch ( RuntimeException e ) {
-			throw new NexusReSTClientException( e );
-		}
-		finally {
-			if ( client != null ) client.close();
-		}
+		call( baseURL, username, password, client -> {
+			client.deleteComponent( componentId );
+			return null;
+		} );
 	}
 
 	/**
@@ -453,22 +233,7 @@ public class NexusReSTClient {
 	 * @throws org.scijava.nexus.v1.client.NexusReSTClientException if a RuntimeException or IOException is encountered.
 	 */
 	public static List< File > getComponent( String baseURL, String componentId, String downloadDir ) throws NexusReSTClientException {
-		Client client = null;
-		try {
-			client = ClientBuilder.newClient();
-			ResteasyWebTarget webTarget = ( ResteasyWebTarget ) client.target( baseURL );
-			NexusReSTClientProxy restClient = webTarget.proxy( NexusReSTClientProxy.class );
-			String response = restClient.getComponent( componentId );
-			ObjectMapper mapper = new ObjectMapper();
-			Component component = mapper.readValue( response, Component.class );
-			return saveComponent( component, downloadDir );
-
-		} catch ( RuntimeException | IOException e ) {
-			throw new NexusReSTClientException( e );
-		}
-		finally {
-			if ( client != null ) client.close();
-		}
+		return call( baseURL, null, null, client -> client.getComponent( componentId, downloadDir ) );
 	}
 
 	/**
@@ -490,84 +255,119 @@ public class NexusReSTClient {
 			String password,
 			String repository,
 			ComponentUploadForm uploadForm ) throws NexusReSTClientException {
-		Client client = null;
-		try {
-			client = ClientBuilder.newClient();
-			ResteasyWebTarget webTarget = ( ResteasyWebTarget ) client.target( baseURL );
-			webTarget.register( new BasicAuthentication( username, password ) );
-			NexusReSTClientProxy restClient = webTarget.proxy( NexusReSTClientProxy.class );
-			restClient.uploadComponent( repository, uploadForm );
-		} catch ( RuntimeException e ) {
-			throw new NexusReSTClientException( e );
-		}
-		finally {
-			if ( client != null ) client.close();
+		call( baseURL, username, password, client -> {
+			client.uploadComponent( repository, uploadForm );
+			return null;
+		} );
+	}
+
+	/**
+	 * Close all the shared sessions opened by the static methods that are not
+	 * in use. They are transparently reopened on the next call.
+	 */
+	public static void closeAll() {
+		List< NexusClient > idle = new ArrayList<>();
+		synchronized ( SESSIONS ) {
+			evict( idle, s -> true );
 		}
+		idle.forEach( NexusClient::close );
+	}
+
+	/**
+	 * One request to a shared session
+	 */
+	private interface Call< T > {
+
+		T apply( NexusClient client ) throws NexusReSTClientException;
+	}
 
+	/**
+	 * A shared session and the calls currently using it
+	 */
+	private static class Session {
+
+		private final NexusClient client;
+		private int users;
+		private long lastUsed;
+
+		private Session( NexusClient client ) {
+			this.client = client;
+		}
 	}
 
-	@SuppressWarnings( "unchecked" )
-	private static < T > List< T > lister( String repository, BiFunction< String, String, String > listFunction, TypeReference< List< T > > typeRef ) throws NexusReSTClientException {
+	/**
+	 * Run a call with the shared session of the server and credentials,
+	 * opening it if needed. Sessions idle for longer than
+	 * {@link #IDLE_TIMEOUT}, and the least recently used idle ones beyond
+	 * {@link #MAX_SESSIONS}, are closed on the way.
+	 */
+	private static < T > T call( String baseURL, String username, String password, Call< T > call ) throws NexusReSTClientException {
+		String key = key( baseURL, username, password );
+		Session session;
+		List< NexusClient > idle = new ArrayList<>();
 		try {
-			boolean begin = true;
-			String continuationToken = "";
-			List< T > result = new ArrayList<>();
-			String response;
-			ObjectMapper mapper = new ObjectMapper();
-			mapper.configure( DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY, true );
-			while ( continuationToken != null ) {
-				if ( begin ) {
-					response = listFunction.apply( repository, null );
-					begin = false;
-				} else {
-					response = listFunction.apply( repository, continuationToken );
+			synchronized ( SESSIONS ) {
+				long now = System.nanoTime();
+				evict( idle, s -> now - s.lastUsed > IDLE_TIMEOUT );
+				session = SESSIONS.get( key );
+				if ( session == null ) {
+					if ( SESSIONS.size() >= MAX_SESSIONS ) evict( idle, s -> true, SESSIONS.size() - MAX_SESSIONS + 1 );
+					session = new Session( new NexusClient( baseURL, username, password ) );
+					SESSIONS.put( key, session );
 				}
-				Map< String, Object > map = mapper.readValue( response, Map.class );
-				result.addAll( mapper.convertValue( map.get( ITEMS ), typeRef ) );
-				continuationToken = ( String ) map.get( CTOKEN );
+				session.users++;
 			}
-			return result;
-		} catch ( RuntimeException | IOException e ) {
+		} catch ( RuntimeException e ) {
 			throw new NexusReSTClientException( e );
+		} finally {
+			idle.forEach( NexusClient::close );
+		}
+		try {
+			return call.apply( session.client );
+		} finally {
+			synchronized ( SESSIONS ) {
+				session.users--;
+				session.lastUsed = System.nanoTime();
+			}
 		}
 	}
 
-	private static File saveAsset( String url, String downloadDir ) throws IOException {
-
-		String fileName = url.substring( url.lastIndexOf( '/' ) + 1 );
-		String tmpPath = TMPDIR + File.separator + fileName;
-		String finalPath =
-				downloadDir + File.separator + fileName;
-		return saveToFile( new URL( url ), tmpPath, finalPath );
+	private static void evict( List< NexusClient > evicted, Predicate< Session > idle ) {
+		evict( evicted, idle, Integer.MAX_VALUE );
 	}
 
-	private static List< File > saveComponent( Component component, String downloadDir ) throws IOException {
-
-		List< Asset > assets = component.getAssets();
-		List< File > files = new ArrayList<>( assets.size() );
-		for ( Asset asset : assets ) {
-			String url = asset.getDownloadUrl();
-			String fileName = url.substring( url.lastIndexOf( '/' ) + 1 );
-			String tmpPath = TMPDIR + File.separator + fileName;
-			String finalPath =
-					downloadDir + File.separator + fileName;
-			files.add( saveToFile( new URL( url ), tmpPath, finalPath ) );
+	/**
+	 * Remove up to max unused sessions matching the predicate, least
+	 * recently used first, to be closed by the caller outside the lock
+	 */
+	private static void evict( List< NexusClient > evicted, Predicate< Session > idle, int max ) {
+		for ( Iterator< Session > it = SESSIONS.values().iterator(); it.hasNext() && max > 0; ) {
+			Session session = it.next();
+			if ( session.users == 0 && idle.test( session ) ) {
+				it.remove();
+				evicted.add( session.client );
+				max--;
+			}
 		}
-		return files;
-
 	}
 
-	private static File saveToFile( URL url, String tmpPath, String finalPath ) throws IOException {
-
-		try (ReadableByteChannel readableByteChannel = Channels.newChannel( url.openStream() )) {
-			try (FileOutputStream fileOutputStream = new FileOutputStream( tmpPath )) {
-				fileOutputStream.getChannel().transferFrom( readableByteChannel, 0, Long.MAX_VALUE );
-				Files.copy(
-						Paths.get( tmpPath ),
-						Paths.get( finalPath ),
-						StandardCopyOption.REPLACE_EXISTING );
-				return new File( finalPath );
-			}
+	/**
+	 * @return the session key: the password enters it only as a digest, so it
+	 *         is not kept in memory. Every field is length-prefixed, and a
+	 *         null one marked as such, so no two credentials share a key.
+	 */
+	private static String key( String baseURL, String username, String password ) {
+		String key = field( baseURL ) + field( username );
+		if ( password == null ) return key + field( null );
+		try {
+			byte[] digest = MessageDigest.getInstance( "SHA-256" ).digest( ( field( username ) + field( password ) ).getBytes( StandardCharsets.UTF_8 ) );
+			return key + field( Base64.getEncoder().encodeToString( digest ) );
+		} catch ( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException( e );
 		}
 	}
+
+	private static String field( String value ) {
+		return ( value == null ) ? "\0" : value.length() + ":" + value;
+	}
 }
@@ -1,13 +1,18 @@
 package org.scijava.nexus.v1.client;
 
+import java.io.InputStream;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
+import org.jboss.resteasy.annotations.jaxrs.HeaderParam;
 import org.jboss.resteasy.annotations.jaxrs.PathParam;
 import org.jboss.resteasy.annotations.jaxrs.QueryParam;
 import org.jboss.resteasy.annotations.providers.multipart.MultipartForm;
@@ -116,4 +121,78 @@ public interface NexusReSTClientProxy {
 	@Consumes( MediaType.MULTIPART_FORM_DATA )
 	public void uploadComponent( @QueryParam( "repository" ) String repository, @MultipartForm ComponentUploadForm componentForm );
 
+	/*
+	 * Streaming variants of the paginated endpoints: the page is decoded
+	 * directly from the response body. The caller must close the stream to
+	 * release the connection.
+	 */
+
+	@GET
+	@Path( "/service/rest/v1/search/assets" )
+	@Produces( MediaType.APPLICATION_JSON )
+	public InputStream searchAssetsAsStream(
+			@QueryParam( "sort" ) String sort,
+			@QueryParam( "direction" ) String order,
+			@QueryParam( "q" ) String keyword,
+			@QueryParam( "repository" ) String repository,
+			@QueryParam( "format" ) String format,
+			@QueryParam( "group" ) String group,
+			@QueryParam( "name" ) String name,
+			@QueryParam( "version" ) String version,
+			@QueryParam( "maven.groupId" ) String mavenGroupId,
+			@QueryParam( "maven.artifactId" ) String mavenArtifactId,
+			@QueryParam( "maven.baseVersion" ) String mavenBaseVersion,
+			@QueryParam( "maven.extension" ) String mavenExtension,
+			@QueryParam( "continuationToken" ) String continuationToken );
+
+	@GET
+	@Path( "/service/rest/v1/assets" )
+	@Produces( MediaType.APPLICATION_JSON )
+	public InputStream listAssetsAsStream( @QueryParam( "repository" ) String repository, @QueryParam( "continuationToken" ) String continuationToken );
+
+	@GET
+	@Path( "/service/rest/v1/search" )
+	@Produces( MediaType.APPLICATION_JSON )
+	public InputStream searchComponentsAsStream(
+			@QueryParam( "sort" ) String sort,
+			@QueryParam( "direction" ) String order,
+			@QueryParam( "q" ) String keyword,
+			@QueryParam( "repository" ) String repository,
+			@QueryParam( "format" ) String format,
+			@QueryParam( "group" ) String group,
+			@QueryParam( "name" ) String name,
+			@QueryParam( "version" ) String version,
+			@QueryParam( "maven.groupId" ) String mavenGroupId,
+			@QueryParam( "maven.artifactId" ) String mavenArtifactId,
+			@QueryParam( "maven.baseVersion" ) String mavenBaseVersion,
+			@QueryParam( "maven.extension" ) String mavenExtension,
+			@QueryParam( "continuationToken" ) String continuationToken );
+
+	@GET
+	@Path( "/service/rest/v1/components" )
+	@Produces( MediaType.APPLICATION_JSON )
+	public InputStream listComponentsAsStream( @QueryParam( "repository" ) String repository, @QueryParam( "continuationToken" ) String continuationToken );
+
+	/*
+	 * Conditional variants of the single document endpoints: given the ETag
+	 * or Last-Modified of a previous response, the server answers 304 Not
+	 * Modified without a body if the document has not changed. Null
+	 * validators are not sent. The caller must close the response.
+	 */
+
+	@GET
+	@Path( "/service/rest/v1/repositories" )
+	@Produces( MediaType.APPLICATION_JSON )
+	public Response listRepositories( @HeaderParam( HttpHeaders.IF_NONE_MATCH ) String etag, @HeaderParam( HttpHeaders.IF_MODIFIED_SINCE ) String lastModified );
+
+	@GET
+	@Path( "/service/rest/v1/assets/{id}" )
+	@Produces( MediaType.APPLICATION_JSON )
+	public Response getAsset( @PathParam( "id" ) String id, @HeaderParam( HttpHeaders.IF_NONE_MATCH ) String etag, @HeaderParam( HttpHeaders.IF_MODIFIED_SINCE ) String lastModified );
+
+	@GET
+	@Path( "/service/rest/v1/components/{id}" )
+	@Produces( MediaType.APPLICATION_JSON )
+	public Response getComponent( @PathParam( "id" ) String id, @HeaderParam( HttpHeaders.IF_NONE_MATCH ) String etag, @HeaderParam( HttpHeaders.IF_MODIFIED_SINCE ) String lastModified );
+
 }
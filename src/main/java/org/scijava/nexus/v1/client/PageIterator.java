@@ -0,0 +1,144 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.scijava.nexus.v1.client.MetricsListener.Endpoint;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Iterates over the items of a paginated Nexus response, requesting the next
+ * page only once the items of the current one have been consumed.
+ *
+ * Each page is decoded as soon as it arrives and its connection handed back
+ * to the pool, so no connection is held between pages. After {@link #close()}
+ * no further page is requested.
+ *
+ * @author agent
+ */
+class PageIterator< T > implements Iterator< T >, AutoCloseable {
+
+	private final Function< String, InputStream > pageFunction;
+	private final ObjectReader itemReader;
+	private final Retry retry;
+	private final Endpoint endpoint;
+	private final MetricsListener metrics;
+	private int pages;
+	private long listed;
+	final ArrayDeque< T > items = new ArrayDeque<>();
+	boolean lastPage;
+	boolean closed;
+	private String continuationToken;
+
+	/**
+	 *
+	 * @param pageFunction
+	 *            - fetches the page for a continuation token, null for the
+	 *            first page
+	 * @param itemReader
+	 *            - reader bound to the item type
+	 * @param retry
+	 *            - retries a failed page with the same continuation token, or
+	 *            null
+	 * @param endpoint
+	 *            - the paginated endpoint, as reported to the listener
+	 * @param metrics
+	 *            - receives the page and item counts, or null
+	 */
+	PageIterator( Function< String, InputStream > pageFunction, ObjectReader itemReader, Retry retry, Endpoint endpoint, MetricsListener metrics ) {
+		this.pageFunction = pageFunction;
+		this.itemReader = itemReader;
+		this.retry = retry;
+		this.endpoint = endpoint;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while ( items.isEmpty() && !lastPage && !closed ) {
+			fetchPage();
+		}
+		return !items.isEmpty();
+	}
+
+	@Override
+	public T next() {
+		if ( !hasNext() ) throw new NoSuchElementException();
+		return items.poll();
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		items.clear();
+	}
+
+	/**
+	 * @return a sequential stream over the remaining items, closing this
+	 *         iterator when the stream is closed
+	 */
+	Stream< T > stream() {
+		Spliterator< T > spliterator = Spliterators.spliteratorUnknownSize( this, Spliterator.ORDERED | Spliterator.NONNULL );
+		return StreamSupport.stream( spliterator, false ).onClose( this::close );
+	}
+
+	/**
+	 * Fill {@link #items} with the next page, or set {@link #lastPage}.
+	 */
+	void fetchPage() {
+		try {
+			continuationToken = readPage( continuationToken, items::add );
+			lastPage = continuationToken == null;
+		} catch ( RuntimeException | IOException e ) {
+			lastPage = true;
+			throw new UncheckedNexusReSTClientException( new NexusReSTClientException( e ) );
+		}
+	}
+
+	/**
+	 * Request and decode a single page, releasing its connection. When
+	 * retried, the items reach the sink only once the whole page is decoded,
+	 * so that a page failing halfway does not deliver its first items twice.
+	 *
+	 * @return the continuation token of the following page, or null
+	 */
+	String readPage( String token, Consumer< ? super T > sink ) throws IOException {
+		if ( retry == null && metrics == null ) return read( token, sink );
+		List< T > page = new ArrayList<>();
+		String next;
+		if ( retry == null ) {
+			next = read( token, page::add );
+		} else {
+			next = retry.call( () -> {
+				page.clear();
+				return read( token, page::add );
+			} );
+		}
+		page.forEach( sink );
+		if ( metrics != null ) {
+			pages++;
+			listed += page.size();
+			metrics.pageFetched( endpoint, page.size() );
+			if ( next == null ) metrics.listingCompleted( endpoint, pages, listed );
+		}
+		return next;
+	}
+
+	private String read( String token, Consumer< ? super T > sink ) throws IOException {
+		try (InputStream page = pageFunction.apply( token )) {
+			return NexusJson.< T >readPage( page, itemReader, sink );
+		}
+	}
+}
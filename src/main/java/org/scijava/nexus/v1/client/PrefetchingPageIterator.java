@@ -0,0 +1,146 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.scijava.nexus.v1.client.MetricsListener.Endpoint;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * A {@link PageIterator} that keeps fetching ahead of its consumer.
+ *
+ * A background task requests page N+1 as soon as the continuation token of
+ * page N has been decoded, so the network round trip of the next page
+ * overlaps with whatever the consumer does with the current one. At most
+ * {@code depth} decoded pages wait for the consumer; the fetching task blocks
+ * beyond that. Closing the iterator cancels the task.
+ *
+ * If the task has not started by the time the consumer waits for the first
+ * page, because the executor has no thread free, the consumer fetches the
+ * pages itself, one at a time, as a plain {@link PageIterator} does.
+ *
+ * @author agent
+ */
+class PrefetchingPageIterator< T > extends PageIterator< T > {
+
+	private static final Object END = new Object();
+
+	/** Milliseconds the consumer waits for the task to start before fetching itself */
+	private static final long CLAIM_AFTER = 10;
+
+	private static final int PENDING = 0;
+	private static final int TASK = 1;
+	private static final int CONSUMER = 2;
+
+	/** Holds decoded pages, then either {@link #END} or the failure. */
+	private final BlockingQueue< Object > pages;
+	private final Future< ? > fetcher;
+	private volatile boolean cancelled;
+	/** Whether the task or the consumer fetches the pages */
+	private final AtomicInteger state = new AtomicInteger( PENDING );
+
+	/**
+	 *
+	 * @param pageFunction
+	 *            - fetches the page for a continuation token, null for the
+	 *            first page
+	 * @param itemReader
+	 *            - reader bound to the item type
+	 * @param retry
+	 *            - retries a failed page with the same continuation token, or
+	 *            null
+	 * @param endpoint
+	 *            - the paginated endpoint, as reported to the listener
+	 * @param metrics
+	 *            - receives the page and item counts, or null
+	 * @param depth
+	 *            - maximum number of pages fetched ahead of the consumer
+	 * @param executor
+	 *            - runs the fetching task
+	 */
+	PrefetchingPageIterator( Function< String, InputStream > pageFunction, ObjectReader itemReader, Retry retry, Endpoint endpoint, MetricsListener metrics, int depth,
+			ExecutorService executor ) {
+		super( pageFunction, itemReader, retry, endpoint, metrics );
+		pages = new ArrayBlockingQueue<>( depth );
+		fetcher = executor.submit( this::fetchAll );
+	}
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	void fetchPage() {
+		if ( state.get() == CONSUMER ) {
+			super.fetchPage();
+			return;
+		}
+		Object page;
+		try {
+			while ( ( page = pages.poll( CLAIM_AFTER, TimeUnit.MILLISECONDS ) ) == null ) {
+				if ( state.compareAndSet( PENDING, CONSUMER ) ) {
+					super.fetchPage();
+					return;
+				}
+			}
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new UncheckedNexusReSTClientException( new NexusReSTClientException( e ) );
+		}
+		if ( page == END ) {
+			lastPage = true;
+		} else if ( page instanceof NexusReSTClientException ) {
+			lastPage = true;
+			throw new UncheckedNexusReSTClientException( ( NexusReSTClientException ) page );
+		} else {
+			items.addAll( ( List< T > ) page );
+		}
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		cancelled = true;
+		fetcher.cancel( true );
+		pages.clear();
+	}
+
+	private void fetchAll() {
+		// unless the consumer got to it first
+		if ( !state.compareAndSet( PENDING, TASK ) ) return;
+		try {
+			try {
+				String continuationToken = null;
+				do {
+					List< T > page = new ArrayList<>();
+					continuationToken = readPage( continuationToken, page::add );
+					if ( !enqueue( page ) ) return;
+				} while ( continuationToken != null );
+				enqueue( END );
+			} catch ( RuntimeException | IOException e ) {
+				enqueue( new NexusReSTClientException( e ) );
+			}
+		} catch ( InterruptedException e ) {
+			// the consumer closed the iterator
+		}
+	}
+
+	/**
+	 * Wait for room in the queue, giving up once the iterator is closed even
+	 * if the interrupt was swallowed by the transport.
+	 */
+	private boolean enqueue( Object page ) throws InterruptedException {
+		while ( !cancelled ) {
+			if ( pages.offer( page, 100, TimeUnit.MILLISECONDS ) ) return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,588 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.scijava.nexus.v1.client.domain.Asset;
+import org.scijava.nexus.v1.client.domain.Checksum;
+import org.scijava.nexus.v1.client.domain.Component;
+import org.scijava.nexus.v1.client.domain.Query;
+
+/**
+ * Read-only, memory-mapped index of the components and assets of one
+ * repository, against which a {@link Query} is evaluated without a round
+ * trip to the server.
+ *
+ * All the strings of the repository are stored once, sorted by their UTF-8
+ * bytes, so that a string is found by binary search without being decoded.
+ * Components and assets are fixed-size records of string numbers, and each
+ * secondary index is a sorted array of (string, component) pairs. The
+ * strings a keyword is matched against are also stored lowercased, so a
+ * keyword search compares bytes in place. Nothing is decoded until it is
+ * part of a result.
+ *
+ * File layout, big-endian:
+ *
+ * <pre>
+ * header       magic, version, sha-256 fingerprint of the contents,
+ *              build time, number of strings, components and assets
+ * strings      offsets of the strings, then their UTF-8 bytes
+ * components   id, group, name, version, format, first asset, asset count
+ * assets       id, path, download URL, format, sha1, sha256, sha512, md5,
+ *              component
+ * postings     for each {@link Field}: count, then (string, component) pairs
+ * keywords     count, the numbers of the strings, offsets of their
+ *              lowercased forms, then their UTF-8 bytes
+ * </pre>
+ *
+ * The file is mapped as a whole, so it cannot exceed 2 GB.
+ *
+ * @author agent
+ */
+final class RepositoryIndex {
+
+	/**
+	 * The values a component is indexed by
+	 */
+	enum Field {
+		GROUP, NAME, VERSION, BASE_VERSION, EXTENSION, PATH
+	}
+
+	private static final int MAGIC = 0x4e584931; // NXI1
+	private static final int VERSION = 2;
+	private static final int HEADER = 4 + 4 + 32 + 8 + 4 + 4 + 4;
+	private static final int COMPONENT = 7;
+	private static final int ASSET = 9;
+	private static final int NONE = -1;
+
+	private static final Pattern SNAPSHOT = Pattern.compile( "(.*)-\\d{8}\\.\\d{6}-\\d+" );
+
+	private static final Comparator< String > NULLS_FIRST = Comparator.nullsFirst( Comparator.naturalOrder() );
+	private static final Comparator< Component > ORDER = Comparator.comparing( Component::getGroup, NULLS_FIRST )
+			.thenComparing( Component::getName, NULLS_FIRST )
+			.thenComparing( Component::getVersion, NULLS_FIRST )
+			.thenComparing( Component::getId, NULLS_FIRST );
+
+	private final String repository;
+	private final ByteBuffer buffer;
+	private final byte[] fingerprint = new byte[ 32 ];
+	private final int strings;
+	private final int components;
+	private final int stringData;
+	private final int componentData;
+	private final int assetData;
+	private final int[] postings = new int[ Field.values().length ];
+	private final int keywords;
+	private final int keywordIds;
+	private final int keywordData;
+
+	private RepositoryIndex( String repository, ByteBuffer buffer ) throws IOException {
+		this.repository = repository;
+		this.buffer = buffer;
+		if ( buffer.getInt( 0 ) != MAGIC || buffer.getInt( 4 ) != VERSION ) throw new IOException( "Not a repository index" );
+		ByteBuffer header = buffer.duplicate();
+		// through Buffer, whose methods a Java 8 runtime has
+		( ( Buffer ) header ).position( 8 );
+		header.get( fingerprint );
+		strings = buffer.getInt( 48 );
+		components = buffer.getInt( 52 );
+		int assets = buffer.getInt( 56 );
+		stringData = HEADER + ( strings + 1 ) * 4;
+		componentData = stringData + buffer.getInt( HEADER + strings * 4 );
+		assetData = componentData + components * COMPONENT * 4;
+		int position = assetData + assets * ASSET * 4;
+		for ( Field field : Field.values() ) {
+			postings[ field.ordinal() ] = position;
+			position += 4 + buffer.getInt( position ) * 8;
+		}
+		keywords = buffer.getInt( position );
+		keywordIds = position + 4;
+		keywordData = keywordIds + keywords * 4 + ( keywords + 1 ) * 4;
+	}
+
+	/**
+	 * Map an index file
+	 */
+	static RepositoryIndex open( String repository, Path file ) throws IOException {
+		try (FileChannel channel = FileChannel.open( file )) {
+			if ( channel.size() >= Integer.MAX_VALUE ) throw new IOException( "Repository index too large: " + file );
+			MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+			return new RepositoryIndex( repository, buffer );
+		}
+	}
+
+	/**
+	 * Write the index of the given components to a file.
+	 *
+	 * @param components
+	 *            - the complete listing of the repository, sorted in place
+	 * @throws IOException
+	 *             also if the index would exceed 2 GB
+	 */
+	static void write( Path file, List< Component > components ) throws IOException {
+		components.sort( ORDER );
+		Set< String > distinct = new HashSet<>();
+		int assets = 0;
+		for ( Component component : components ) {
+			for ( String value : values( component ) )
+				if ( value != null ) distinct.add( value );
+			for ( Asset asset : assets( component ) ) {
+				for ( String value : values( asset ) )
+					if ( value != null ) distinct.add( value );
+				String extension = extension( component, asset );
+				if ( extension != null ) distinct.add( extension );
+				assets++;
+			}
+			String baseVersion = baseVersion( component.getVersion() );
+			if ( baseVersion != null ) distinct.add( baseVersion );
+		}
+		List< byte[] > bytes = new ArrayList<>( distinct.size() );
+		for ( String value : distinct )
+			bytes.add( value.getBytes( StandardCharsets.UTF_8 ) );
+		bytes.sort( RepositoryIndex::compare );
+		Map< String, Integer > ids = new HashMap<>( bytes.size() * 2 );
+		for ( byte[] value : bytes )
+			ids.put( new String( value, StandardCharsets.UTF_8 ), ids.size() );
+		Function< String, Integer > id = value -> ( value == null ) ? NONE : ids.get( value );
+
+		List< List< long[] > > postings = new ArrayList<>();
+		for ( int i = 0; i < Field.values().length; i++ )
+			postings.add( new ArrayList<>() );
+
+		try (DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( file ), 1 << 16 ) )) {
+			out.writeInt( MAGIC );
+			out.writeInt( VERSION );
+			out.write( fingerprint( components ) );
+			out.writeLong( System.currentTimeMillis() );
+			out.writeInt( bytes.size() );
+			out.writeInt( components.size() );
+			out.writeInt( assets );
+			long offset = 0;
+			for ( byte[] value : bytes ) {
+				out.writeInt( ( int ) offset );
+				offset += value.length;
+				if ( offset >= Integer.MAX_VALUE ) throw new IOException( "Repository too large to index: " + offset + " bytes of strings" );
+			}
+			out.writeInt( ( int ) offset );
+			for ( byte[] value : bytes )
+				out.write( value );
+
+			int firstAsset = 0;
+			for ( int c = 0; c < components.size(); c++ ) {
+				Component component = components.get( c );
+				for ( String value : values( component ) )
+					out.writeInt( id.apply( value ) );
+				out.writeInt( firstAsset );
+				out.writeInt( assets( component ).size() );
+				firstAsset += assets( component ).size();
+
+				post( postings, Field.GROUP, id.apply( component.getGroup() ), c );
+				post( postings, Field.NAME, id.apply( component.getName() ), c );
+				post( postings, Field.VERSION, id.apply( component.getVersion() ), c );
+				post( postings, Field.BASE_VERSION, id.apply( baseVersion( component.getVersion() ) ), c );
+				for ( Asset asset : assets( component ) ) {
+					post( postings, Field.EXTENSION, id.apply( extension( component, asset ) ), c );
+					post( postings, Field.PATH, id.apply( asset.getPath() ), c );
+				}
+			}
+			for ( int c = 0; c < components.size(); c++ ) {
+				for ( Asset asset : assets( components.get( c ) ) ) {
+					for ( String value : values( asset ) )
+						out.writeInt( id.apply( value ) );
+					out.writeInt( c );
+				}
+			}
+
+			for ( List< long[] > field : postings ) {
+				field.sort( ( a, b ) -> ( a[ 0 ] != b[ 0 ] ) ? Long.compare( a[ 0 ], b[ 0 ] ) : Long.compare( a[ 1 ], b[ 1 ] ) );
+				out.writeInt( field.size() );
+				for ( long[] posting : field ) {
+					out.writeInt( ( int ) posting[ 0 ] );
+					out.writeInt( ( int ) posting[ 1 ] );
+				}
+			}
+
+			// the strings a keyword is matched against, in their order
+			BitSet matched = new BitSet( bytes.size() );
+			for ( Field field : new Field[] { Field.GROUP, Field.NAME, Field.VERSION, Field.PATH } ) {
+				for ( long[] posting : postings.get( field.ordinal() ) )
+					matched.set( ( int ) posting[ 0 ] );
+			}
+			List< byte[] > lowercase = new ArrayList<>( matched.cardinality() );
+			out.writeInt( matched.cardinality() );
+			for ( int s = matched.nextSetBit( 0 ); s >= 0; s = matched.nextSetBit( s + 1 ) ) {
+				out.writeInt( s );
+				lowercase.add( new String( bytes.get( s ), StandardCharsets.UTF_8 ).toLowerCase( Locale.ROOT ).getBytes( StandardCharsets.UTF_8 ) );
+			}
+			offset = 0;
+			for ( byte[] value : lowercase ) {
+				out.writeInt( ( int ) offset );
+				offset += value.length;
+				if ( offset >= Integer.MAX_VALUE ) throw new IOException( "Repository too large to index: " + offset + " bytes of keywords" );
+			}
+			out.writeInt( ( int ) offset );
+			for ( byte[] value : lowercase )
+				out.write( value );
+			// the count saturates rather than wrap
+			if ( out.size() == Integer.MAX_VALUE ) throw new IOException( "Repository too large to index: over 2 GB" );
+		}
+	}
+
+	/**
+	 * @return a digest of everything the index holds, by which an unchanged
+	 *         listing is recognized
+	 */
+	static byte[] fingerprint( List< Component > components ) {
+		MessageDigest digest = ChecksumAlgorithm.SHA256.newDigest();
+		List< Component > sorted = new ArrayList<>( components );
+		sorted.sort( ORDER );
+		for ( Component component : sorted ) {
+			update( digest, values( component ) );
+			for ( Asset asset : assets( component ) )
+				update( digest, values( asset ) );
+		}
+		return digest.digest();
+	}
+
+	byte[] getFingerprint() {
+		return fingerprint.clone();
+	}
+
+	/**
+	 * @return false if the query uses wildcards, which are left to the
+	 *         server
+	 */
+	static boolean supports( Query q ) {
+		for ( String value : new String[] { q.getKeyword(), q.getComponentGroup(), q.getComponentName(), q.getComponentVersion(),
+				q.getMavenGroupId(), q.getMavenArtifactId(), q.getMavenBaseVersion(), q.getMavenExtension() } ) {
+			if ( value != null && value.indexOf( '*' ) >= 0 ) return false;
+		}
+		return true;
+	}
+
+	List< Component > searchComponents( Query q ) {
+		List< Component > result = new ArrayList<>();
+		BitSet matches = match( q );
+		for ( int c = matches.nextSetBit( 0 ); c >= 0; c = matches.nextSetBit( c + 1 ) )
+			result.add( component( c ) );
+		sort( result, q );
+		return result;
+	}
+
+	List< Asset > searchAssets( Query q ) {
+		List< Component > matches = searchComponents( q );
+		List< Asset > result = new ArrayList<>();
+		for ( Component component : matches ) {
+			for ( Asset asset : component.getAssets() ) {
+				if ( q.getMavenExtension() == null || q.getMavenExtension().equals( extension( component, asset ) ) ) result.add( asset );
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the components matching every constraint of the query
+	 */
+	private BitSet match( Query q ) {
+		List< Postings > constraints = new ArrayList<>();
+		constrain( constraints, Field.GROUP, q.getComponentGroup() );
+		constrain( constraints, Field.GROUP, q.getMavenGroupId() );
+		constrain( constraints, Field.NAME, q.getComponentName() );
+		constrain( constraints, Field.NAME, q.getMavenArtifactId() );
+		constrain( constraints, Field.VERSION, q.getComponentVersion() );
+		constrain( constraints, Field.BASE_VERSION, q.getMavenBaseVersion() );
+		constrain( constraints, Field.EXTENSION, q.getMavenExtension() );
+
+		BitSet matches = new BitSet();
+		if ( constraints.isEmpty() ) {
+			matches.set( 0, components );
+		} else {
+			// walk the shortest list, and look its components up in the others
+			constraints.sort( Comparator.comparingInt( postings -> postings.high - postings.low ) );
+			Postings shortest = constraints.get( 0 );
+			for ( int i = shortest.low; i < shortest.high; i++ ) {
+				int c = shortest.component( i );
+				boolean all = true;
+				for ( int k = 1; k < constraints.size() && all; k++ )
+					all = constraints.get( k ).contains( c );
+				if ( all ) matches.set( c );
+			}
+		}
+		if ( q.getKeyword() != null ) matches.and( keyword( q.getKeyword() ) );
+		if ( q.getFormat() != null ) {
+			for ( int c = matches.nextSetBit( 0 ); c >= 0; c = matches.nextSetBit( c + 1 ) ) {
+				if ( !q.getFormat().equalsIgnoreCase( string( componentInt( c, 4 ) ) ) ) matches.clear( c );
+			}
+		}
+		return matches;
+	}
+
+	private void constrain( List< Postings > constraints, Field field, String value ) {
+		if ( value != null ) constraints.add( postings( field, lookup( value ) ) );
+	}
+
+	/**
+	 * A keyword matches, case-insensitively, any part of the group, name or
+	 * version of a component or the path of one of its assets.
+	 */
+	private BitSet keyword( String keyword ) {
+		byte[] term = keyword.toLowerCase( Locale.ROOT ).getBytes( StandardCharsets.UTF_8 );
+		BitSet hits = new BitSet( components );
+		int offsets = keywordIds + keywords * 4;
+		for ( int k = 0; k < keywords; k++ ) {
+			int start = keywordData + buffer.getInt( offsets + k * 4 );
+			int end = keywordData + buffer.getInt( offsets + k * 4 + 4 );
+			if ( !contains( start, end, term ) ) continue;
+			int s = buffer.getInt( keywordIds + k * 4 );
+			post( hits, Field.GROUP, s );
+			post( hits, Field.NAME, s );
+			post( hits, Field.VERSION, s );
+			post( hits, Field.PATH, s );
+		}
+		return hits;
+	}
+
+	/**
+	 * @return whether the bytes between start and end contain the term. The
+	 *         match of UTF-8 bytes is that of the characters, as no
+	 *         character's encoding starts within another's.
+	 */
+	private boolean contains( int start, int end, byte[] term ) {
+		for ( int i = start; i <= end - term.length; i++ ) {
+			int j = 0;
+			while ( j < term.length && buffer.get( i + j ) == term[ j ] )
+				j++;
+			if ( j == term.length ) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Set the components posted under the given string
+	 */
+	private void post( BitSet hits, Field field, int string ) {
+		Postings postings = postings( field, string );
+		for ( int i = postings.low; i < postings.high; i++ )
+			hits.set( postings.component( i ) );
+	}
+
+	/**
+	 * @return the postings of the string, an empty range if there are none
+	 */
+	private Postings postings( Field field, int string ) {
+		int base = postings[ field.ordinal() ];
+		int count = ( string == NONE ) ? 0 : buffer.getInt( base );
+		int low = lowerBound( base, 0, count, 0, string );
+		return new Postings( base, low, lowerBound( base, low, count, 0, string + 1 ) );
+	}
+
+	/**
+	 * @param offset
+	 *            - 0 to search by string, 4 by component
+	 * @return the first posting in the range whose string or component is
+	 *         not less than the value
+	 */
+	private int lowerBound( int base, int low, int high, int offset, int value ) {
+		while ( low < high ) {
+			int mid = ( low + high ) >>> 1;
+			if ( buffer.getInt( base + 4 + mid * 8 + offset ) < value ) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * @return the number of the string, or NONE if the repository does not
+	 *         contain it
+	 */
+	private int lookup( String value ) {
+		byte[] key = value.getBytes( StandardCharsets.UTF_8 );
+		int low = 0;
+		int high = strings - 1;
+		while ( low <= high ) {
+			int mid = ( low + high ) >>> 1;
+			int cmp = compare( mid, key );
+			if ( cmp < 0 ) low = mid + 1;
+			else if ( cmp > 0 ) high = mid - 1;
+			else return mid;
+		}
+		return NONE;
+	}
+
+	/**
+	 * Compare a stored string with the given bytes, in place
+	 */
+	private int compare( int id, byte[] key ) {
+		int start = stringData + buffer.getInt( HEADER + id * 4 );
+		int length = stringData + buffer.getInt( HEADER + id * 4 + 4 ) - start;
+		for ( int i = 0; i < Math.min( length, key.length ); i++ ) {
+			int cmp = ( buffer.get( start + i ) & 0xff ) - ( key[ i ] & 0xff );
+			if ( cmp != 0 ) return cmp;
+		}
+		return length - key.length;
+	}
+
+	private static int compare( byte[] a, byte[] b ) {
+		for ( int i = 0; i < Math.min( a.length, b.length ); i++ ) {
+			int cmp = ( a[ i ] & 0xff ) - ( b[ i ] & 0xff );
+			if ( cmp != 0 ) return cmp;
+		}
+		return a.length - b.length;
+	}
+
+	private String string( int id ) {
+		if ( id == NONE ) return null;
+		int start = stringData + buffer.getInt( HEADER + id * 4 );
+		byte[] bytes = new byte[ stringData + buffer.getInt( HEADER + id * 4 + 4 ) - start ];
+		for ( int i = 0; i < bytes.length; i++ )
+			bytes[ i ] = buffer.get( start + i );
+		return new String( bytes, StandardCharsets.UTF_8 );
+	}
+
+	private int componentInt( int component, int field ) {
+		return buffer.getInt( componentData + ( component * COMPONENT + field ) * 4 );
+	}
+
+	private int assetInt( int asset, int field ) {
+		return buffer.getInt( assetData + ( asset * ASSET + field ) * 4 );
+	}
+
+	private Component component( int c ) {
+		Component component = new Component();
+		component.setId( string( componentInt( c, 0 ) ) );
+		component.setRepository( repository );
+		component.setGroup( string( componentInt( c, 1 ) ) );
+		component.setName( string( componentInt( c, 2 ) ) );
+		component.setVersion( string( componentInt( c, 3 ) ) );
+		component.setFormat( string( componentInt( c, 4 ) ) );
+		int first = componentInt( c, 5 );
+		int count = componentInt( c, 6 );
+		List< Asset > assets = new ArrayList<>( count );
+		for ( int a = first; a < first + count; a++ ) {
+			Asset asset = new Asset();
+			asset.setId( string( assetInt( a, 0 ) ) );
+			asset.setRepository( repository );
+			asset.setPath( string( assetInt( a, 1 ) ) );
+			asset.setDownloadUrl( string( assetInt( a, 2 ) ) );
+			asset.setFormat( string( assetInt( a, 3 ) ) );
+			Checksum checksum = new Checksum();
+			checksum.setSha1( string( assetInt( a, 4 ) ) );
+			checksum.setSha256( string( assetInt( a, 5 ) ) );
+			checksum.setSha512( string( assetInt( a, 6 ) ) );
+			checksum.setMd5( string( assetInt( a, 7 ) ) );
+			asset.setChecksum( checksum );
+			assets.add( asset );
+		}
+		component.setAssets( assets );
+		return component;
+	}
+
+	/**
+	 * Sort as the server does, see {@link SearchOrder}; otherwise by group,
+	 * name and version.
+	 */
+	private static void sort( List< Component > result, Query q ) {
+		Comparator< Component > order = SearchOrder.of( q );
+		if ( order != null ) result.sort( order );
+		else if ( "desc".equals( q.getOrderBy() ) ) Collections.reverse( result );
+	}
+
+	private static void post( List< List< long[] > > postings, Field field, int string, int component ) {
+		if ( string != NONE ) postings.get( field.ordinal() ).add( new long[] { string, component } );
+	}
+
+	private static void update( MessageDigest digest, String[] values ) {
+		for ( String value : values ) {
+			digest.update( ( value == null ) ? new byte[] { 0 } : ( value + "\0" ).getBytes( StandardCharsets.UTF_8 ) );
+		}
+		digest.update( ( byte ) '\n' );
+	}
+
+	private static String[] values( Component component ) {
+		return new String[] { component.getId(), component.getGroup(), component.getName(), component.getVersion(), component.getFormat() };
+	}
+
+	private static String[] values( Asset asset ) {
+		Checksum checksum = asset.getChecksum();
+		return new String[] { asset.getId(), asset.getPath(), asset.getDownloadUrl(), asset.getFormat(),
+				ChecksumAlgorithm.SHA1.of( checksum ), ChecksumAlgorithm.SHA256.of( checksum ),
+				ChecksumAlgorithm.SHA512.of( checksum ), ChecksumAlgorithm.MD5.of( checksum ) };
+	}
+
+	private static List< Asset > assets( Component component ) {
+		return ( component.getAssets() == null ) ? Collections.emptyList() : component.getAssets();
+	}
+
+	/**
+	 * @return the maven base version: that of a timestamped snapshot is
+	 *         X-SNAPSHOT
+	 */
+	static String baseVersion( String version ) {
+		if ( version == null ) return null;
+		Matcher snapshot = SNAPSHOT.matcher( version );
+		return snapshot.matches() ? snapshot.group( 1 ) + "-SNAPSHOT" : version;
+	}
+
+	/**
+	 * @return the maven extension of an asset: what follows the artifactId,
+	 *         version and classifier in the file name, e.g. "jar" or
+	 *         "jar.sha1"
+	 */
+	static String extension( Component component, Asset asset ) {
+		String path = asset.getPath();
+		if ( path == null ) return null;
+		String file = path.substring( path.lastIndexOf( '/' ) + 1 );
+		String prefix = component.getName() + "-" + component.getVersion();
+		String rest = file.startsWith( prefix ) ? file.substring( prefix.length() ) : file.substring( Math.max( 0, file.lastIndexOf( '.' ) ) );
+		int dot = rest.indexOf( '.' );
+		return ( dot < 0 || dot == rest.length() - 1 ) ? null : rest.substring( dot + 1 );
+	}
+
+	/**
+	 * The postings of one string: a range of (string, component) pairs,
+	 * hence sorted by component
+	 */
+	private final class Postings {
+
+		final int base;
+		final int low;
+		final int high;
+
+		Postings( int base, int low, int high ) {
+			this.base = base;
+			this.low = low;
+			this.high = high;
+		}
+
+		int component( int i ) {
+			return buffer.getInt( base + 8 + i * 8 );
+		}
+
+		boolean contains( int component ) {
+			int i = lowerBound( base, low, high, 4, component );
+			return i < high && component( i ) == component;
+		}
+	}
+}
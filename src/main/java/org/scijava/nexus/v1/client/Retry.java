@@ -0,0 +1,163 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Runs idempotent requests under a {@link RetryPolicy}, and keeps the state
+ * of the circuit breaker of one session.
+ *
+ * The circuit counts transient failures in a row, whichever requests they
+ * come from; any response that is not a transient failure closes it again.
+ *
+ * @author agent
+ */
+class Retry {
+
+	/**
+	 * One attempt at a request
+	 */
+	interface Attempt< T > {
+
+		T run() throws IOException;
+	}
+
+	private final int maxAttempts;
+	private final long initialBackoff;
+	private final long maxBackoff;
+	private final double multiplier;
+	private final double jitter;
+	private final Set< Integer > retryableStatuses;
+	private final int failureThreshold;
+	private final long openDuration;
+	private final MetricsListener metrics;
+
+	private int failures;
+	/** {@link System#nanoTime()} until which the circuit is open, 0 if closed */
+	private long openUntil;
+	private boolean probing;
+
+	/**
+	 *
+	 * @param policy
+	 *            - the policy to apply
+	 * @param metrics
+	 *            - notified of retries and of the circuit opening, or null
+	 */
+	Retry( RetryPolicy policy, MetricsListener metrics ) {
+		maxAttempts = Math.max( 1, policy.getMaxAttempts() );
+		initialBackoff = policy.getInitialBackoff();
+		maxBackoff = policy.getMaxBackoff();
+		multiplier = policy.getMultiplier();
+		jitter = Math.min( 1, Math.max( 0, policy.getJitter() ) );
+		retryableStatuses = policy.getRetryableStatuses();
+		failureThreshold = policy.getFailureThreshold();
+		openDuration = TimeUnit.MILLISECONDS.toNanos( policy.getOpenDuration() );
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Run the request until it succeeds, fails for a reason that is not
+	 * transient, or runs out of attempts.
+	 *
+	 * @return the result of the successful attempt
+	 * @throws IOException
+	 *             the failure of the last attempt, or if the circuit is open
+	 */
+	< T > T call( Attempt< T > attempt ) throws IOException {
+		long backoff = initialBackoff;
+		for ( int n = 1;; n++ ) {
+			admit();
+			try {
+				T result = attempt.run();
+				closeCircuit();
+				return result;
+			} catch ( IOException | RuntimeException e ) {
+				if ( !isTransient( e ) ) {
+					// the server answered
+					closeCircuit();
+					throw e;
+				}
+				fail();
+				if ( n >= maxAttempts ) throw e;
+				if ( metrics != null ) metrics.retried( ( e instanceof WebApplicationException ) ? ( ( WebApplicationException ) e ).getResponse().getStatus() : 0 );
+				sleep( delay( backoff, e ) );
+				backoff = Math.min( maxBackoff, ( long ) ( backoff * multiplier ) );
+			}
+		}
+	}
+
+	/**
+	 * @return true for connection errors and retryable statuses
+	 */
+	boolean isTransient( Throwable e ) {
+		if ( Thread.currentThread().isInterrupted() ) return false;
+		if ( e instanceof WebApplicationException ) return retryableStatuses.contains( ( ( WebApplicationException ) e ).getResponse().getStatus() );
+		if ( e instanceof ProcessingException ) e = e.getCause();
+		if ( !( e instanceof IOException ) || e instanceof JsonProcessingException ) return false;
+		// an interrupted transfer is not retried, one that timed out is
+		return !( e instanceof InterruptedIOException ) || e instanceof SocketTimeoutException;
+	}
+
+	private synchronized void admit() throws IOException {
+		if ( openUntil == 0 ) return;
+		long remaining = openUntil - System.nanoTime();
+		if ( remaining > 0 || probing ) {
+			throw new IOException( "Circuit open after " + failures + " consecutive transient failures, requests resume in "
+					+ TimeUnit.NANOSECONDS.toMillis( Math.max( 0, remaining ) ) + " ms" );
+		}
+		// let this request through to probe the server
+		probing = true;
+	}
+
+	private synchronized void closeCircuit() {
+		failures = 0;
+		openUntil = 0;
+		probing = false;
+	}
+
+	private synchronized void fail() {
+		failures++;
+		if ( probing || ( failureThreshold > 0 && failures >= failureThreshold ) ) {
+			if ( metrics != null && ( openUntil == 0 || probing ) ) metrics.circuitOpened();
+			openUntil = System.nanoTime() + openDuration;
+			if ( openUntil == 0 ) openUntil = 1;
+			probing = false;
+		}
+	}
+
+	/**
+	 * @return milliseconds to wait: the backoff less a random part of it, but
+	 *         at least what the server asked for
+	 */
+	private long delay( long backoff, Throwable e ) {
+		long delay = ( long ) ( backoff * ( 1 - jitter * ThreadLocalRandom.current().nextDouble() ) );
+		if ( e instanceof WebApplicationException ) {
+			String retryAfter = ( ( WebApplicationException ) e ).getResponse().getHeaderString( "Retry-After" );
+			try {
+				if ( retryAfter != null ) delay = Math.max( delay, TimeUnit.SECONDS.toMillis( Long.parseLong( retryAfter.trim() ) ) );
+			} catch ( NumberFormatException ignored ) {
+				// an HTTP date, not worth parsing
+			}
+		}
+		return Math.min( delay, maxBackoff );
+	}
+
+	private static void sleep( long millis ) throws InterruptedIOException {
+		try {
+			Thread.sleep( millis );
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException( "Interrupted while waiting to retry" );
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package org.scijava.nexus.v1.client;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * How a {@link NexusClient} retries idempotent requests that failed for a
+ * transient reason: a connection error or one of the
+ * {@link #setRetryableStatuses(Set) retryable statuses}. Attempts are spaced
+ * by an exponential backoff, randomized so that clients failing together do
+ * not retry together.
+ *
+ * A circuit breaker shared by all requests of the session stops sending any
+ * once {@link #setFailureThreshold(int) enough} transient failures occur in a
+ * row: requests fail immediately until the {@link #setOpenDuration(long)
+ * open duration} has elapsed, after which a single request is let through to
+ * probe the server.
+ *
+ * @author agent
+ *
+ */
+
+public class RetryPolicy {
+
+	private int maxAttempts = 3;
+	private long initialBackoff = 200;
+	private long maxBackoff = 10000;
+	private double multiplier = 2;
+	private double jitter = 0.5;
+	private Set< Integer > retryableStatuses = new HashSet<>( Arrays.asList( 429, 502, 503, 504 ) );
+	private int failureThreshold = 10;
+	private long openDuration = 30000;
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 *
+	 * @param maxAttempts
+	 *            - attempts per request, including the first
+	 */
+	public void setMaxAttempts( int maxAttempts ) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public long getInitialBackoff() {
+		return initialBackoff;
+	}
+
+	/**
+	 *
+	 * @param initialBackoff
+	 *            - milliseconds to wait before the first retry
+	 */
+	public void setInitialBackoff( long initialBackoff ) {
+		this.initialBackoff = initialBackoff;
+	}
+
+	public long getMaxBackoff() {
+		return maxBackoff;
+	}
+
+	/**
+	 *
+	 * @param maxBackoff
+	 *            - milliseconds the wait between attempts grows to at most,
+	 *            also capping the Retry-After requested by the server
+	 */
+	public void setMaxBackoff( long maxBackoff ) {
+		this.maxBackoff = maxBackoff;
+	}
+
+	public double getMultiplier() {
+		return multiplier;
+	}
+
+	/**
+	 *
+	 * @param multiplier
+	 *            - factor by which the wait grows after every retry
+	 */
+	public void setMultiplier( double multiplier ) {
+		this.multiplier = multiplier;
+	}
+
+	public double getJitter() {
+		return jitter;
+	}
+
+	/**
+	 *
+	 * @param jitter
+	 *            - fraction of every wait, from 0 to 1, drawn at random: 0
+	 *            waits exactly the backoff, 1 anything up to it
+	 */
+	public void setJitter( double jitter ) {
+		this.jitter = jitter;
+	}
+
+	public Set< Integer > getRetryableStatuses() {
+		return Collections.unmodifiableSet( retryableStatuses );
+	}
+
+	/**
+	 *
+	 * @param retryableStatuses
+	 *            - HTTP statuses worth retrying, by default 429, 502, 503 and
+	 *            504
+	 */
+	public void setRetryableStatuses( Set< Integer > retryableStatuses ) {
+		this.retryableStatuses = new HashSet<>( retryableStatuses );
+	}
+
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	/**
+	 *
+	 * @param failureThreshold
+	 *            - consecutive transient failures, across all requests, that
+	 *            open the circuit; 0 disables the circuit breaker
+	 */
+	public void setFailureThreshold( int failureThreshold ) {
+		this.failureThreshold = failureThreshold;
+	}
+
+	public long getOpenDuration() {
+		return openDuration;
+	}
+
+	/**
+	 *
+	 * @param openDuration
+	 *            - milliseconds during which an open circuit fails requests
+	 *            without sending them
+	 */
+	public void setOpenDuration( long openDuration ) {
+		this.openDuration = openDuration;
+	}
+}
@@ -0,0 +1,105 @@
+package org.scijava.nexus.v1.client;
+
+import java.util.Comparator;
+
+import org.scijava.nexus.v1.client.domain.Component;
+import org.scijava.nexus.v1.client.domain.Query;
+
+/**
+ * The order in which the server returns the components of a sorted search,
+ * by which the results of several repositories are merged and a local index
+ * sorts its own.
+ *
+ * Versions are compared as the server compares its normalized versions, in
+ * which every run of digits is padded: numbers compare by value, so 1.10
+ * follows 1.9. Without a direction, versions are sorted newest first and
+ * everything else ascending, as the server does.
+ *
+ * @author agent
+ */
+final class SearchOrder {
+
+	private static final Comparator< String > NULLS_FIRST = Comparator.nullsFirst( Comparator.naturalOrder() );
+
+	static final Comparator< String > VERSION = Comparator.nullsFirst( SearchOrder::compareVersions );
+
+	private SearchOrder() {}
+
+	/**
+	 * @return the order of the components the query returns, or null if it
+	 *         is not sorted
+	 */
+	static Comparator< Component > of( Query q ) {
+		if ( q.getSortBy() == null ) return null;
+		Comparator< Component > order;
+		boolean descending;
+		switch ( q.getSortBy() ) {
+		case "group":
+			order = Comparator.comparing( Component::getGroup, NULLS_FIRST );
+			descending = false;
+			break;
+		case "name":
+			order = Comparator.comparing( Component::getName, NULLS_FIRST );
+			descending = false;
+			break;
+		case "version":
+			order = Comparator.comparing( Component::getVersion, VERSION );
+			descending = true;
+			break;
+		default:
+			order = Comparator.comparing( Component::getRepository, NULLS_FIRST );
+			descending = false;
+		}
+		if ( q.getOrderBy() != null ) descending = "desc".equals( q.getOrderBy() );
+		return descending ? order.reversed() : order;
+	}
+
+	/**
+	 * Compare two versions character by character, except that runs of
+	 * digits are compared by their value
+	 */
+	static int compareVersions( String a, String b ) {
+		int i = 0;
+		int j = 0;
+		while ( i < a.length() && j < b.length() ) {
+			if ( isDigit( a.charAt( i ) ) && isDigit( b.charAt( j ) ) ) {
+				int endA = digits( a, i );
+				int endB = digits( b, j );
+				int cmp = compareNumbers( a.substring( i, endA ), b.substring( j, endB ) );
+				if ( cmp != 0 ) return cmp;
+				i = endA;
+				j = endB;
+			} else {
+				int cmp = Character.compare( a.charAt( i ), b.charAt( j ) );
+				if ( cmp != 0 ) return cmp;
+				i++;
+				j++;
+			}
+		}
+		return Integer.compare( a.length() - i, b.length() - j );
+	}
+
+	private static int compareNumbers( String a, String b ) {
+		a = stripZeros( a );
+		b = stripZeros( b );
+		return ( a.length() != b.length() ) ? Integer.compare( a.length(), b.length() ) : a.compareTo( b );
+	}
+
+	private static String stripZeros( String number ) {
+		int start = 0;
+		while ( start < number.length() - 1 && number.charAt( start ) == '0' )
+			start++;
+		return number.substring( start );
+	}
+
+	private static int digits( String s, int start ) {
+		int end = start;
+		while ( end < s.length() && isDigit( s.charAt( end ) ) )
+			end++;
+		return end;
+	}
+
+	private static boolean isDigit( char c ) {
+		return c >= '0' && c <= '9';
+	}
+}
@@ -0,0 +1,80 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the combined throughput of the transfers sharing it.
+ *
+ * Every byte read is charged against a clock that advances by
+ * {@code 1 / bytesPerSecond} per byte; a reader that gets ahead of real time
+ * sleeps until the clock catches up. Unused capacity is not saved up for
+ * more than a second, so an idle period cannot be followed by a burst.
+ *
+ * @author agent
+ */
+class Throttle {
+
+	private static final long BURST = TimeUnit.SECONDS.toNanos( 1 );
+
+	private final double nanosPerByte;
+	private long clock = System.nanoTime();
+
+	/**
+	 *
+	 * @param bytesPerSecond
+	 *            - the combined throughput to allow
+	 */
+	Throttle( long bytesPerSecond ) {
+		nanosPerByte = TimeUnit.SECONDS.toNanos( 1 ) / ( double ) bytesPerSecond;
+	}
+
+	/**
+	 * Account for bytes read, sleeping if they exceed the allowed throughput.
+	 */
+	void acquire( int bytes ) throws InterruptedIOException {
+		long wait;
+		synchronized ( this ) {
+			long now = System.nanoTime();
+			if ( now - clock > BURST ) clock = now - BURST;
+			clock += ( long ) ( bytes * nanosPerByte );
+			wait = clock - now;
+		}
+		if ( wait <= 0 ) return;
+		try {
+			TimeUnit.NANOSECONDS.sleep( wait );
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+
+	/**
+	 * @return a channel charging every byte read from the source to this
+	 *         throttle
+	 */
+	ReadableByteChannel wrap( ReadableByteChannel source ) {
+		return new ReadableByteChannel() {
+
+			@Override
+			public int read( ByteBuffer dst ) throws IOException {
+				int read = source.read( dst );
+				if ( read > 0 ) acquire( read );
+				return read;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return source.isOpen();
+			}
+
+			@Override
+			public void close() throws IOException {
+				source.close();
+			}
+		};
+	}
+}
@@ -0,0 +1,26 @@
+package org.scijava.nexus.v1.client;
+
+/**
+ * Wraps a {@link NexusReSTClientException} thrown while a lazily fetched
+ * {@link java.util.stream.Stream} or {@link java.util.Iterator} of results is
+ * being consumed, where checked exceptions cannot be thrown.
+ *
+ * @author agent
+ */
+public class UncheckedNexusReSTClientException extends RuntimeException {
+
+	private static final long serialVersionUID = -3172545123934046839L;
+
+	public UncheckedNexusReSTClientException( NexusReSTClientException cause ) {
+		super( cause );
+	}
+
+	public UncheckedNexusReSTClientException( String message, NexusReSTClientException cause ) {
+		super( message, cause );
+	}
+
+	@Override
+	public NexusReSTClientException getCause() {
+		return ( NexusReSTClientException ) super.getCause();
+	}
+}
@@ -0,0 +1,65 @@
+package org.scijava.nexus.v1.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * One file of a bulk upload: where it goes, relative to the upload
+ * directory, and where its contents come from.
+ *
+ * @author agent
+ *
+ */
+
+public class UploadEntry {
+
+	private final String path;
+	private final InputStream data;
+	private final Path file;
+
+	/**
+	 *
+	 * @param path
+	 *            - the name of the file in the repository. Can include a path
+	 *            relative to the upload directory
+	 * @param data
+	 *            - the contents of the file; the stream is closed once sent
+	 */
+	public UploadEntry( String path, InputStream data ) {
+		this.path = path;
+		this.data = data;
+		this.file = null;
+	}
+
+	/**
+	 *
+	 * @param path
+	 *            - the name of the file in the repository. Can include a path
+	 *            relative to the upload directory
+	 * @param file
+	 *            - the local file to upload, only opened when it is sent. Its
+	 *            size is read beforehand and must not change until then.
+	 */
+	public UploadEntry( String path, Path file ) {
+		this.path = path;
+		this.data = null;
+		this.file = file;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the local file, or null if the entry is backed by a stream
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	InputStream open() throws IOException {
+		return ( file != null ) ? Files.newInputStream( file ) : data;
+	}
+}
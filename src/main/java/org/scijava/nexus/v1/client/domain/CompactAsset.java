@@ -0,0 +1,157 @@
+package org.scijava.nexus.v1.client.domain;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable and memory-compact representation of a Nexus {@link Asset}, for
+ * listings of millions of assets.
+ *
+ * The repository, the format and the download URL up to the path are shared
+ * by the assets of a {@link Pool}, checksums are kept as bytes rather than
+ * hexadecimal strings, and the download URL is only assembled when asked
+ * for. Being immutable, instances can be shared between threads.
+ *
+ * @author agent
+ *
+ */
+
+public final class CompactAsset {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final String id;
+	private final String path;
+	private final String repository;
+	private final String format;
+	/** The download URL without the path, unless it does not end with the path */
+	private final String urlPrefix;
+	private final boolean wholeUrl;
+	private final byte[] sha1;
+	private final byte[] sha256;
+	private final byte[] sha512;
+	private final byte[] md5;
+
+	private CompactAsset( String id, String path, String repository, String format, String urlPrefix, boolean wholeUrl, byte[] sha1, byte[] sha256, byte[] sha512, byte[] md5 ) {
+		this.id = id;
+		this.path = path;
+		this.repository = repository;
+		this.format = format;
+		this.urlPrefix = urlPrefix;
+		this.wholeUrl = wholeUrl;
+		this.sha1 = sha1;
+		this.sha256 = sha256;
+		this.sha512 = sha512;
+		this.md5 = md5;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public String getRepository() {
+		return repository;
+	}
+
+	public String getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return the download URL, assembled on every call
+	 */
+	public String getDownloadUrl() {
+		return wholeUrl ? urlPrefix : urlPrefix + path;
+	}
+
+	/**
+	 * @return a new {@link Checksum} holding the hexadecimal checksums
+	 */
+	public Checksum getChecksum() {
+		Checksum checksum = new Checksum();
+		checksum.setSha1( hex( sha1 ) );
+		checksum.setSha256( hex( sha256 ) );
+		checksum.setSha512( hex( sha512 ) );
+		checksum.setMd5( hex( md5 ) );
+		return checksum;
+	}
+
+	/**
+	 * @return a new {@link Asset} with the same attributes, e.g. to download
+	 *         it
+	 */
+	public Asset toAsset() {
+		Asset asset = new Asset();
+		asset.setId( id );
+		asset.setPath( path );
+		asset.setRepository( repository );
+		asset.setFormat( format );
+		asset.setDownloadUrl( getDownloadUrl() );
+		asset.setChecksum( getChecksum() );
+		return asset;
+	}
+
+	private static String hex( byte[] bytes ) {
+		if ( bytes == null ) return null;
+		char[] chars = new char[ bytes.length * 2 ];
+		for ( int i = 0; i < bytes.length; i++ ) {
+			chars[ 2 * i ] = HEX[ ( bytes[ i ] >> 4 ) & 0xf ];
+			chars[ 2 * i + 1 ] = HEX[ bytes[ i ] & 0xf ];
+		}
+		return new String( chars );
+	}
+
+	/**
+	 * @return the bytes of a hexadecimal checksum, or null if there is none
+	 *         or it is not hexadecimal
+	 */
+	private static byte[] bytes( String hex ) {
+		if ( hex == null || hex.length() % 2 != 0 ) return null;
+		byte[] bytes = new byte[ hex.length() / 2 ];
+		for ( int i = 0; i < bytes.length; i++ ) {
+			int high = Character.digit( hex.charAt( 2 * i ), 16 );
+			int low = Character.digit( hex.charAt( 2 * i + 1 ), 16 );
+			if ( high < 0 || low < 0 ) return null;
+			bytes[ i ] = ( byte ) ( ( high << 4 ) | low );
+		}
+		return bytes;
+	}
+
+	/**
+	 * Compacts the assets of one listing, sharing a single copy of the
+	 * strings they have in common. A pool is not thread safe; the assets it
+	 * returns are.
+	 */
+	public static class Pool {
+
+		private final Map< String, String > strings = new HashMap<>();
+
+		/**
+		 * @param asset
+		 *            - the asset to compact
+		 * @return its compact representation
+		 */
+		public CompactAsset compact( Asset asset ) {
+			String path = asset.getPath();
+			String url = asset.getDownloadUrl();
+			boolean wholeUrl = url == null || path == null || !url.endsWith( path );
+			String urlPrefix = wholeUrl ? url : share( url.substring( 0, url.length() - path.length() ) );
+			Checksum checksum = asset.getChecksum();
+			return new CompactAsset( asset.getId(), path, share( asset.getRepository() ), share( asset.getFormat() ), urlPrefix, wholeUrl,
+					( checksum == null ) ? null : bytes( checksum.getSha1() ),
+					( checksum == null ) ? null : bytes( checksum.getSha256() ),
+					( checksum == null ) ? null : bytes( checksum.getSha512() ),
+					( checksum == null ) ? null : bytes( checksum.getMd5() ) );
+		}
+
+		private String share( String value ) {
+			if ( value == null ) return null;
+			String shared = strings.putIfAbsent( value, value );
+			return ( shared == null ) ? value : shared;
+		}
+	}
+}
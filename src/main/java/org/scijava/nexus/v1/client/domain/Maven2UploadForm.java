@@ -0,0 +1,161 @@
+package org.scijava.nexus.v1.client.domain;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Data required for component upload to "maven2" repositories: the
+ * coordinates of the component and any number of its files, e.g. the jar,
+ * pom, sources and javadoc of one release
+ *
+ * @author agent
+ *
+ */
+
+public class Maven2UploadForm {
+
+	private String groupId;
+
+	private String artifactId;
+
+	private String version;
+
+	private String packaging;
+
+	private boolean generatePom;
+
+	private final List< Artifact > assets = new ArrayList<>();
+
+	/**
+	 * @param groupId
+	 *            - the maven groupId; may be left out if a pom is uploaded
+	 */
+	public void setGroupId( String groupId ) {
+		this.groupId = groupId;
+	}
+
+	public String getGroupId() {
+		return groupId;
+	}
+
+	/**
+	 * @param artifactId
+	 *            - the maven artifactId; may be left out if a pom is uploaded
+	 */
+	public void setArtifactId( String artifactId ) {
+		this.artifactId = artifactId;
+	}
+
+	public String getArtifactId() {
+		return artifactId;
+	}
+
+	/**
+	 * @param version
+	 *            - the maven version; may be left out if a pom is uploaded
+	 */
+	public void setVersion( String version ) {
+		this.version = version;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * @param packaging
+	 *            - the packaging of the generated pom, e.g. "jar"
+	 */
+	public void setPackaging( String packaging ) {
+		this.packaging = packaging;
+	}
+
+	public String getPackaging() {
+		return packaging;
+	}
+
+	/**
+	 * @param generatePom
+	 *            - have the server generate a pom from the coordinates, when
+	 *            none is uploaded
+	 */
+	public void setGeneratePom( boolean generatePom ) {
+		this.generatePom = generatePom;
+	}
+
+	public boolean isGeneratePom() {
+		return generatePom;
+	}
+
+	/**
+	 * @param file
+	 *            - the local file to upload
+	 * @param classifier
+	 *            - e.g. "sources" or "javadoc", or null for the main artifact
+	 * @param extension
+	 *            - e.g. "jar" or "pom"
+	 */
+	public void addAsset( Path file, String classifier, String extension ) {
+		assets.add( new Artifact( null, file, classifier, extension ) );
+	}
+
+	/**
+	 * @param data
+	 *            - the contents of the file; the stream is closed once sent
+	 * @param classifier
+	 *            - e.g. "sources" or "javadoc", or null for the main artifact
+	 * @param extension
+	 *            - e.g. "jar" or "pom"
+	 */
+	public void addAsset( InputStream data, String classifier, String extension ) {
+		assets.add( new Artifact( data, null, classifier, extension ) );
+	}
+
+	public List< Artifact > getAssets() {
+		return Collections.unmodifiableList( assets );
+	}
+
+	/**
+	 * One file of a maven2 component
+	 */
+	public static class Artifact {
+
+		private final InputStream data;
+		private final Path file;
+		private final String classifier;
+		private final String extension;
+
+		Artifact( InputStream data, Path file, String classifier, String extension ) {
+			this.data = data;
+			this.file = file;
+			this.classifier = classifier;
+			this.extension = extension;
+		}
+
+		/**
+		 * @return the contents, or null if the file is on disk
+		 */
+		public InputStream getData() {
+			return data;
+		}
+
+		/**
+		 * @return the local file, or null if the contents are given as a
+		 *         stream
+		 */
+		public Path getFile() {
+			return file;
+		}
+
+		public String getClassifier() {
+			return classifier;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+	}
+}
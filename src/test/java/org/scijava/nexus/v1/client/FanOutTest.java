@@ -0,0 +1,168 @@
+package org.scijava.nexus.v1.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.scijava.nexus.v1.client.domain.Component;
+import org.scijava.nexus.v1.client.domain.Query;
+
+/**
+ * @author agent
+ */
+public class FanOutTest {
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@AfterEach
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testMergesInOrderWithTiesToTheFirstRepository() {
+		Map< String, Iterator< String > > sources = new LinkedHashMap<>();
+		sources.put( "a", Arrays.asList( "a1", "a3", "a3", "a8" ).iterator() );
+		sources.put( "b", Arrays.asList( "b2", "b3", "b9" ).iterator() );
+		sources.put( "c", Collections.< String >emptyIterator() );
+		Comparator< String > bySuffix = Comparator.comparing( item -> item.substring( 1 ) );
+		try (FanOut< String > merged = new FanOut<>( sources, bySuffix, 1, executor )) {
+			assertEquals( Arrays.asList( "a1", "b2", "a3", "a3", "b3", "a8", "b9" ), list( merged ) );
+		}
+	}
+
+	@Test
+	public void testMergesVersionsAsTheServerSortsThem() {
+		Query q = new Query();
+		q.setSortBy( Query.Sort.VERSION );
+		Map< String, Iterator< Component > > sources = new LinkedHashMap<>();
+		sources.put( "a", Arrays.asList( component( "1.10" ), component( "1.2" ) ).iterator() );
+		sources.put( "b", Arrays.asList( component( "1.9" ), component( "1.0" ) ).iterator() );
+		try (FanOut< Component > merged = new FanOut<>( sources, SearchOrder.of( q ), 1, executor )) {
+			List< String > versions = list( merged ).stream().map( Component::getVersion ).collect( Collectors.toList() );
+			assertEquals( Arrays.asList( "1.10", "1.9", "1.2", "1.0" ), versions );
+		}
+	}
+
+	@Test
+	public void testHandsOutEveryItemWithoutOrder() {
+		Map< String, Iterator< Integer > > sources = new LinkedHashMap<>();
+		sources.put( "a", Arrays.asList( 1, 2, 3 ).iterator() );
+		sources.put( "b", Arrays.asList( 4, 5 ).iterator() );
+		try (FanOut< Integer > merged = new FanOut<>( sources, null, 1, executor )) {
+			List< Integer > items = list( merged );
+			Collections.sort( items );
+			assertEquals( Arrays.asList( 1, 2, 3, 4, 5 ), items );
+		}
+	}
+
+	@Test
+	public void testMergesInOrderOnASingleThread() {
+		ExecutorService single = Executors.newFixedThreadPool( 1 );
+		try {
+			assertTimeoutPreemptively( Duration.ofSeconds( 10 ), () -> {
+				try (FanOut< Integer > merged = new FanOut<>( numbers( 3, 20 ), Comparator.naturalOrder(), 1, single )) {
+					List< Integer > items = list( merged );
+					assertEquals( 60, items.size() );
+					for ( int i = 1; i < items.size(); i++ )
+						assertTrue( items.get( i - 1 ) <= items.get( i ) );
+				}
+			} );
+		} finally {
+			single.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testHandsOutEveryItemOnABusyExecutor() throws InterruptedException {
+		ExecutorService single = Executors.newFixedThreadPool( 1 );
+		CountDownLatch release = new CountDownLatch( 1 );
+		try {
+			// no thread is ever free for the repositories
+			single.execute( () -> {
+				try {
+					release.await();
+				} catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+			} );
+			assertTimeoutPreemptively( Duration.ofSeconds( 10 ), () -> {
+				try (FanOut< Integer > merged = new FanOut<>( numbers( 2, 5 ), null, 1, single )) {
+					assertEquals( 10, list( merged ).size() );
+				}
+			} );
+		} finally {
+			release.countDown();
+			single.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testForwardsAnyFailureOfARepository() {
+		Map< String, Iterator< String > > sources = new LinkedHashMap<>();
+		sources.put( "a", Arrays.asList( "a1", "a2" ).iterator() );
+		sources.put( "b", new Iterator< String >() {
+
+			@Override
+			public boolean hasNext() {
+				return true;
+			}
+
+			@Override
+			public String next() {
+				throw new IllegalStateException( "broken" );
+			}
+		} );
+		assertTimeoutPreemptively( Duration.ofSeconds( 10 ), () -> {
+			try (FanOut< String > merged = new FanOut<>( sources, Comparator.naturalOrder(), 1, executor )) {
+				UncheckedNexusReSTClientException e = assertThrows( UncheckedNexusReSTClientException.class, () -> list( merged ) );
+				assertTrue( e.getMessage().contains( "b" ) );
+				assertTrue( e.getCause().getCause() instanceof IllegalStateException );
+			}
+		} );
+	}
+
+	/**
+	 * @return the given number of repositories, each with the multiples of
+	 *         its number, in ascending order
+	 */
+	private static Map< String, Iterator< Integer > > numbers( int repositories, int items ) {
+		Map< String, Iterator< Integer > > sources = new LinkedHashMap<>();
+		for ( int r = 1; r <= repositories; r++ ) {
+			List< Integer > multiples = new ArrayList<>();
+			for ( int i = 0; i < items; i++ )
+				multiples.add( i * r );
+			sources.put( "r" + r, multiples.iterator() );
+		}
+		return sources;
+	}
+
+	private static < T > List< T > list( Iterator< T > iterator ) {
+		List< T > items = new ArrayList<>();
+		iterator.forEachRemaining( items::add );
+		return items;
+	}
+
+	private static Component component( String version ) {
+		Component component = new Component();
+		component.setVersion( version );
+		return component;
+	}
+}
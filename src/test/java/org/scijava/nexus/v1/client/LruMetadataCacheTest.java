@@ -0,0 +1,104 @@
+package org.scijava.nexus.v1.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+import org.scijava.nexus.v1.client.MetadataCache.Type;
+
+/**
+ * @author agent
+ */
+public class LruMetadataCacheTest {
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() {
+		LruMetadataCache cache = new LruMetadataCache( 2 );
+		cache.put( Type.ASSET, "a", entry( "a" ) );
+		cache.put( Type.ASSET, "b", entry( "b" ) );
+		// a is now more recently used than b
+		assertNotNull( cache.get( Type.ASSET, "a" ) );
+		cache.put( Type.ASSET, "c", entry( "c" ) );
+		assertEquals( 2, cache.size() );
+		assertEquals( "a", cache.< String >get( Type.ASSET, "a" ).getValue() );
+		assertNull( cache.get( Type.ASSET, "b" ) );
+		assertEquals( "c", cache.< String >get( Type.ASSET, "c" ).getValue() );
+	}
+
+	@Test
+	public void testStaleLookupIsNotAUse() {
+		LruMetadataCache cache = new LruMetadataCache( 2 );
+		cache.put( Type.ASSET, "a", entry( "a" ) );
+		cache.put( Type.ASSET, "b", entry( "b" ) );
+		assertNotNull( cache.getStale( Type.ASSET, "a" ) );
+		cache.put( Type.ASSET, "c", entry( "c" ) );
+		assertNull( cache.getStale( Type.ASSET, "a" ) );
+		assertNotNull( cache.get( Type.ASSET, "b" ) );
+	}
+
+	@Test
+	public void testPutIsAUse() {
+		LruMetadataCache cache = new LruMetadataCache( 2 );
+		cache.put( Type.ASSET, "a", entry( "a" ) );
+		cache.put( Type.ASSET, "b", entry( "b" ) );
+		// revalidated
+		cache.put( Type.ASSET, "a", entry( "a" ) );
+		cache.put( Type.ASSET, "c", entry( "c" ) );
+		assertNotNull( cache.get( Type.ASSET, "a" ) );
+		assertNull( cache.get( Type.ASSET, "b" ) );
+	}
+
+	@Test
+	public void testExpiredEntriesAreKeptForRevalidation() throws InterruptedException {
+		LruMetadataCache cache = new LruMetadataCache();
+		cache.setTimeToLive( Type.COMPONENT, 0 );
+		cache.put( Type.COMPONENT, "c", new CachedMetadata<>( "c", "\"etag\"", null ) );
+		Thread.sleep( 2 );
+		assertNull( cache.get( Type.COMPONENT, "c" ) );
+		CachedMetadata< String > stale = cache.getStale( Type.COMPONENT, "c" );
+		assertEquals( "c", stale.getValue() );
+		assertEquals( "\"etag\"", stale.getEtag() );
+	}
+
+	@Test
+	public void testTimeToLiveIsPerType() throws InterruptedException {
+		LruMetadataCache cache = new LruMetadataCache();
+		cache.setTimeToLive( Type.QUERY, 0 );
+		cache.put( Type.QUERY, "k", entry( "q" ) );
+		cache.put( Type.ASSET, "k", entry( "a" ) );
+		Thread.sleep( 2 );
+		assertNull( cache.get( Type.QUERY, "k" ) );
+		assertEquals( "a", cache.< String >get( Type.ASSET, "k" ).getValue() );
+	}
+
+	@Test
+	public void testInvalidate() {
+		LruMetadataCache cache = new LruMetadataCache();
+		cache.put( Type.ASSET, "a", entry( "a" ) );
+		cache.put( Type.ASSET, "b", entry( "b" ) );
+		cache.put( Type.QUERY, "a", entry( "q" ) );
+		cache.invalidate( Type.ASSET, "a" );
+		assertNull( cache.getStale( Type.ASSET, "a" ) );
+		assertNotNull( cache.getStale( Type.QUERY, "a" ) );
+		cache.invalidateAll( Type.ASSET );
+		assertNull( cache.getStale( Type.ASSET, "b" ) );
+		assertEquals( 1, cache.size() );
+	}
+
+	@Test
+	public void testCountsHitsAndMisses() {
+		LruMetadataCache cache = new LruMetadataCache();
+		cache.put( Type.ASSET, "a", entry( "a" ) );
+		cache.get( Type.ASSET, "a" );
+		cache.get( Type.ASSET, "b" );
+		cache.get( Type.COMPONENT, "a" );
+		assertEquals( 1, cache.getHitCount( Type.ASSET ) );
+		assertEquals( 1, cache.getMissCount( Type.ASSET ) );
+		assertEquals( 2, cache.getMissCount() );
+	}
+
+	private static CachedMetadata< String > entry( String value ) {
+		return new CachedMetadata<>( value, null, null );
+	}
+}
@@ -0,0 +1,46 @@
+package org.scijava.nexus.v1.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.scijava.nexus.v1.client.MetricsListener.Endpoint;
+
+/**
+ * @author agent
+ */
+public class MeteredEngineTest {
+
+	@Test
+	public void testClassifiesApiPaths() {
+		assertEquals( Endpoint.REPOSITORIES, MeteredEngine.endpoint( "GET", "/service/rest/v1/repositories" ) );
+		assertEquals( Endpoint.SEARCH_COMPONENTS, MeteredEngine.endpoint( "GET", "/service/rest/v1/search" ) );
+		assertEquals( Endpoint.SEARCH_ASSETS, MeteredEngine.endpoint( "GET", "/service/rest/v1/search/assets" ) );
+		assertEquals( Endpoint.SEARCH_AND_DOWNLOAD, MeteredEngine.endpoint( "GET", "/service/rest/v1/search/assets/download" ) );
+		assertEquals( Endpoint.LIST_ASSETS, MeteredEngine.endpoint( "GET", "/service/rest/v1/assets" ) );
+		assertEquals( Endpoint.ASSET, MeteredEngine.endpoint( "GET", "/service/rest/v1/assets/cmF3OjEyMw" ) );
+		assertEquals( Endpoint.ASSET, MeteredEngine.endpoint( "DELETE", "/service/rest/v1/assets/cmF3OjEyMw" ) );
+		assertEquals( Endpoint.LIST_COMPONENTS, MeteredEngine.endpoint( "GET", "/service/rest/v1/components" ) );
+		assertEquals( Endpoint.UPLOAD, MeteredEngine.endpoint( "POST", "/service/rest/v1/components" ) );
+		assertEquals( Endpoint.COMPONENT, MeteredEngine.endpoint( "GET", "/service/rest/v1/components/cmF3OjQ1Ng" ) );
+	}
+
+	@Test
+	public void testAllowsAContextPath() {
+		assertEquals( Endpoint.SEARCH_ASSETS, MeteredEngine.endpoint( "GET", "/nexus/service/rest/v1/search/assets" ) );
+		assertEquals( Endpoint.UPLOAD, MeteredEngine.endpoint( "POST", "/nexus/service/rest/v1/components" ) );
+	}
+
+	@Test
+	public void testAnythingElseIsADownload() {
+		assertEquals( Endpoint.DOWNLOAD, MeteredEngine.endpoint( "GET", "/repository/maven-releases/org/scijava/a/1.0/a-1.0.jar" ) );
+		assertEquals( Endpoint.DOWNLOAD, MeteredEngine.endpoint( "GET", "/repository/raw/search/assets" ) );
+		assertEquals( Endpoint.DOWNLOAD, MeteredEngine.endpoint( "GET", null ) );
+	}
+
+	@Test
+	public void testPrefixesAreNotConfused() {
+		// a longer name is not the search endpoint
+		assertEquals( Endpoint.REPOSITORIES, MeteredEngine.endpoint( "GET", "/service/rest/v1/searches" ) );
+		assertEquals( Endpoint.REPOSITORIES, MeteredEngine.endpoint( "GET", "/service/rest/v1/assetsX" ) );
+	}
+}
@@ -0,0 +1,95 @@
+package org.scijava.nexus.v1.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent
+ */
+public class MultipartEntityTest {
+
+	@Test
+	public void testStreamsAreSentChunked() throws IOException {
+		MultipartEntity entity = new MultipartEntity();
+		entity.addText( "raw.directory", "dir" );
+		entity.addFile( "raw.asset1", new UploadEntry( "sub/a.txt", new ByteArrayInputStream( "hello".getBytes( StandardCharsets.UTF_8 ) ) ) );
+		assertEquals( -1, entity.getContentLength() );
+		assertTrue( entity.isChunked() );
+		assertFalse( entity.isRepeatable() );
+
+		String body = write( entity );
+		String boundary = entity.getContentType().getValue().replaceFirst( ".*boundary=", "" );
+		assertEquals( "--" + boundary + "\r\n" +
+				"Content-Disposition: form-data; name=\"raw.directory\"\r\n" +
+				"Content-Type: text/plain; charset=UTF-8\r\n\r\n" +
+				"dir\r\n" +
+				"--" + boundary + "\r\n" +
+				"Content-Disposition: form-data; name=\"raw.asset1\"; filename=\"a.txt\"\r\n" +
+				"Content-Type: application/octet-stream\r\n\r\n" +
+				"hello\r\n" +
+				"--" + boundary + "--\r\n", body );
+	}
+
+	@Test
+	public void testDeclaresExactLengthOfFilesOnDisk() throws IOException {
+		Path dir = Files.createTempDirectory( "multipart" );
+		try {
+			Path small = Files.write( dir.resolve( "small.bin" ), new byte[] { 1, 2, 3 } );
+			Path empty = Files.write( dir.resolve( "empty.bin" ), new byte[ 0 ] );
+			Path large = Files.write( dir.resolve( "large.bin" ), new byte[ 200_000 ] );
+			MultipartEntity entity = new MultipartEntity();
+			entity.addText( "raw.directory", "r\u00e9pertoire" );
+			entity.addFile( "raw.asset1", new UploadEntry( "a/sm\u00e4ll.bin", small ) );
+			entity.addFile( "raw.asset2", new UploadEntry( "empty.bin", empty ) );
+			entity.addFile( "raw.asset3", new UploadEntry( "large.bin", large ) );
+			assertFalse( entity.isChunked() );
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			entity.writeTo( out );
+			assertEquals( entity.getContentLength(), out.size() );
+		} finally {
+			try (Stream< Path > files = Files.walk( dir )) {
+				files.sorted( Comparator.reverseOrder() ).forEach( file -> file.toFile().delete() );
+			}
+		}
+	}
+
+	@Test
+	public void testFailsIfFileShrinksBeforeSending() throws IOException {
+		Path file = Files.write( Files.createTempFile( "multipart", ".bin" ), new byte[ 100 ] );
+		try {
+			MultipartEntity entity = new MultipartEntity();
+			entity.addFile( "raw.asset1", new UploadEntry( "a.bin", file ) );
+			Files.write( file, new byte[ 10 ] );
+			assertThrows( IOException.class, () -> entity.writeTo( new ByteArrayOutputStream() ) );
+		} finally {
+			Files.delete( file );
+		}
+	}
+
+	@Test
+	public void testQuotesFieldNames() throws IOException {
+		MultipartEntity entity = new MultipartEntity();
+		entity.addText( "a\"b\r\n", "x" );
+		assertTrue( write( entity ).contains( "name=\"a\\\"b\"" ) );
+	}
+
+	static String write( MultipartEntity entity ) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		entity.writeTo( out );
+		return new String( out.toByteArray(), StandardCharsets.UTF_8 );
+	}
+}
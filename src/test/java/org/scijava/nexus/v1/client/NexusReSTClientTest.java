@@ -9,6 +9,8 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.attribute.FileAttribute;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.BeforeAll;
@@ -269,4 +271,17 @@ public class NexusReSTClientTest {
 			assertEquals( 404, e.getHttpErrorCode() );
 		}
 	}
+
+	@Test
+	@Order( 18 )
+	public void testSearchAssetsStreamFindFirst() throws Exception {
+		Query q = new Query();
+		q.setMavenArtifactId( "commons-io" );
+		try (NexusClient nexus = new NexusClient( BASE_URL );
+				Stream< Asset > assets = nexus.searchAssetsStream( q )) {
+			Optional< Asset > first = assets.findFirst();
+			assertTrue( first.isPresent() );
+			assertEquals( "commons-io", first.get().getPath().split( "/" )[ 1 ] );
+		}
+	}
 }
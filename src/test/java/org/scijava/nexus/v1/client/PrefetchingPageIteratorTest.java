@@ -0,0 +1,73 @@
+package org.scijava.nexus.v1.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.scijava.nexus.v1.client.MetricsListener.Endpoint;
+import org.scijava.nexus.v1.client.domain.Asset;
+
+/**
+ * @author agent
+ */
+public class PrefetchingPageIteratorTest {
+
+	/** Three pages of two assets each */
+	private static final Function< String, InputStream > PAGES = token -> {
+		int page = ( token == null ) ? 0 : Integer.parseInt( token );
+		String next = ( page < 2 ) ? "\"" + ( page + 1 ) + "\"" : "null";
+		String json = "{\"items\":[{\"id\":\"" + page + "-0\"},{\"id\":\"" + page + "-1\"}],\"continuationToken\":" + next + "}";
+		return new ByteArrayInputStream( json.getBytes( StandardCharsets.UTF_8 ) );
+	};
+
+	@Test
+	public void testFetchesAhead() {
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try (PrefetchingPageIterator< Asset > assets = new PrefetchingPageIterator<>( PAGES, NexusJson.ASSET, null, Endpoint.LIST_ASSETS, null, 1, executor )) {
+			assertEquals( Arrays.asList( "0-0", "0-1", "1-0", "1-1", "2-0", "2-1" ), ids( assets ) );
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFetchesItselfWhenNoThreadIsFree() throws InterruptedException {
+		ExecutorService single = Executors.newFixedThreadPool( 1 );
+		CountDownLatch release = new CountDownLatch( 1 );
+		try {
+			single.execute( () -> {
+				try {
+					release.await();
+				} catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+			} );
+			assertTimeoutPreemptively( Duration.ofSeconds( 10 ), () -> {
+				try (PrefetchingPageIterator< Asset > assets = new PrefetchingPageIterator<>( PAGES, NexusJson.ASSET, null, Endpoint.LIST_ASSETS, null, 1, single )) {
+					assertEquals( Arrays.asList( "0-0", "0-1", "1-0", "1-1", "2-0", "2-1" ), ids( assets ) );
+				}
+			} );
+		} finally {
+			release.countDown();
+			single.shutdownNow();
+		}
+	}
+
+	private static List< String > ids( PrefetchingPageIterator< Asset > assets ) {
+		List< String > ids = new ArrayList<>();
+		assets.forEachRemaining( asset -> ids.add( asset.getId() ) );
+		return ids;
+	}
+}
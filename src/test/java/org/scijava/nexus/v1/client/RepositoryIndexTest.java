@@ -0,0 +1,155 @@
+package org.scijava.nexus.v1.client;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.scijava.nexus.v1.client.domain.Asset;
+import org.scijava.nexus.v1.client.domain.Checksum;
+import org.scijava.nexus.v1.client.domain.Component;
+import org.scijava.nexus.v1.client.domain.Query;
+
+/**
+ * @author agent
+ */
+public class RepositoryIndexTest {
+
+	@Test
+	public void testReadsBackWhatWasWritten() throws IOException {
+		List< Component > components = listing();
+		RepositoryIndex index = roundTrip( components );
+		assertArrayEquals( RepositoryIndex.fingerprint( components ), index.getFingerprint() );
+
+		Query q = new Query();
+		q.setMavenGroupId( "org.scijava" );
+		q.setMavenArtifactId( "scijava-common" );
+		q.setComponentVersion( "2.1.0" );
+		List< Component > found = index.searchComponents( q );
+		assertEquals( 1, found.size() );
+		Component component = found.get( 0 );
+		assertEquals( "c1", component.getId() );
+		assertEquals( "maven-releases", component.getRepository() );
+		assertEquals( "org.scijava", component.getGroup() );
+		assertEquals( "scijava-common", component.getName() );
+		assertEquals( "2.1.0", component.getVersion() );
+		assertEquals( "maven2", component.getFormat() );
+		assertEquals( 2, component.getAssets().size() );
+		Asset jar = component.getAssets().get( 0 );
+		assertEquals( "a1", jar.getId() );
+		assertEquals( "org/scijava/scijava-common/2.1.0/scijava-common-2.1.0.jar", jar.getPath() );
+		assertEquals( "http://nexus/" + jar.getPath(), jar.getDownloadUrl() );
+		assertEquals( "sha1-a1", jar.getChecksum().getSha1() );
+		assertEquals( "md5-a1", jar.getChecksum().getMd5() );
+		assertNull( jar.getChecksum().getSha512() );
+	}
+
+	@Test
+	public void testMatchesBaseVersionAndExtension() throws IOException {
+		RepositoryIndex index = roundTrip( listing() );
+		Query q = new Query();
+		q.setMavenBaseVersion( "2.2.0-SNAPSHOT" );
+		assertEquals( Arrays.asList( "c3" ), ids( index.searchComponents( q ) ) );
+
+		q = new Query();
+		q.setMavenExtension( "pom" );
+		List< Asset > poms = index.searchAssets( q );
+		assertEquals( Arrays.asList( "a4", "a2" ), poms.stream().map( Asset::getId ).collect( Collectors.toList() ) );
+	}
+
+	@Test
+	public void testKeywordIsCaseInsensitiveSubstring() throws IOException {
+		RepositoryIndex index = roundTrip( listing() );
+		Query q = new Query();
+		q.setKeyword( "SCIJAVA-C" );
+		assertEquals( Arrays.asList( "c1", "c3" ), ids( index.searchComponents( q ) ) );
+
+		q.setKeyword( "\u00dcnicode" );
+		assertEquals( Arrays.asList( "c2" ), ids( index.searchComponents( q ) ) );
+
+		// checksums are not searched
+		q.setKeyword( "sha1-a1" );
+		assertTrue( index.searchComponents( q ).isEmpty() );
+	}
+
+	@Test
+	public void testSortsAsRequested() throws IOException {
+		RepositoryIndex index = roundTrip( listing() );
+		Query q = new Query();
+		q.setSortBy( Query.Sort.NAME );
+		q.setOrderBy( Query.Order.DESC );
+		assertEquals( "c2", ids( index.searchComponents( q ) ).get( 0 ) );
+
+		// newest first unless asked otherwise, as the server does
+		q.setSortBy( Query.Sort.VERSION );
+		q.setOrderBy( null );
+		assertEquals( Arrays.asList( "c3", "c1", "c2" ), ids( index.searchComponents( q ) ) );
+	}
+
+	@Test
+	public void testUnknownValueMatchesNothing() throws IOException {
+		RepositoryIndex index = roundTrip( listing() );
+		Query q = new Query();
+		q.setComponentName( "missing" );
+		assertTrue( index.searchComponents( q ).isEmpty() );
+	}
+
+	private static RepositoryIndex roundTrip( List< Component > components ) throws IOException {
+		Path file = Files.createTempFile( "repository", ".index" );
+		try {
+			RepositoryIndex.write( file, new ArrayList<>( components ) );
+			return RepositoryIndex.open( "maven-releases", file );
+		} finally {
+			// the mapping outlives the file
+			file.toFile().deleteOnExit();
+		}
+	}
+
+	private static List< Component > listing() {
+		return Arrays.asList(
+				component( "c3", "org.scijava", "scijava-common", "2.2.0-20240101.120000-3",
+						asset( "a3", "org/scijava/scijava-common/2.2.0-SNAPSHOT/scijava-common-2.2.0-20240101.120000-3.jar" ) ),
+				component( "c2", "net.imagej", "\u00dcnicode-tools", "1.0",
+						asset( "a4", "net/imagej/\u00dcnicode-tools/1.0/\u00dcnicode-tools-1.0.pom" ) ),
+				component( "c1", "org.scijava", "scijava-common", "2.1.0",
+						asset( "a1", "org/scijava/scijava-common/2.1.0/scijava-common-2.1.0.jar" ),
+						asset( "a2", "org/scijava/scijava-common/2.1.0/scijava-common-2.1.0.pom" ) ) );
+	}
+
+	private static Component component( String id, String group, String name, String version, Asset... assets ) {
+		Component component = new Component();
+		component.setId( id );
+		component.setGroup( group );
+		component.setName( name );
+		component.setVersion( version );
+		component.setFormat( "maven2" );
+		component.setAssets( Arrays.asList( assets ) );
+		return component;
+	}
+
+	private static Asset asset( String id, String path ) {
+		Asset asset = new Asset();
+		asset.setId( id );
+		asset.setPath( path );
+		asset.setDownloadUrl( "http://nexus/" + path );
+		asset.setFormat( "maven2" );
+		Checksum checksum = new Checksum();
+		checksum.setSha1( "sha1-" + id );
+		checksum.setMd5( "md5-" + id );
+		asset.setChecksum( checksum );
+		return asset;
+	}
+
+	private static List< String > ids( List< Component > components ) {
+		return components.stream().map( Component::getId ).collect( Collectors.toList() );
+	}
+}
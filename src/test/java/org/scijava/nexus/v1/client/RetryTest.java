@@ -0,0 +1,169 @@
+package org.scijava.nexus.v1.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+
+/**
+ * @author agent
+ */
+public class RetryTest {
+
+	private final AtomicInteger attempts = new AtomicInteger();
+	private final List< Integer > retried = new ArrayList<>();
+	private final AtomicInteger opened = new AtomicInteger();
+	private final MetricsListener metrics = new MetricsListener() {
+
+		@Override
+		public void retried( int status ) {
+			retried.add( status );
+		}
+
+		@Override
+		public void circuitOpened() {
+			opened.incrementAndGet();
+		}
+	};
+
+	@Test
+	public void testRetriesTransientFailuresUntilSuccess() throws IOException {
+		Retry retry = new Retry( policy( 3, 1 ), metrics );
+		String result = retry.call( () -> {
+			if ( attempts.incrementAndGet() == 1 ) throw new ConnectException( "refused" );
+			if ( attempts.get() == 2 ) throw new WebApplicationException( 503 );
+			return "ok";
+		} );
+		assertEquals( "ok", result );
+		assertEquals( 3, attempts.get() );
+		assertEquals( 0, ( int ) retried.get( 0 ) );
+		assertEquals( 503, ( int ) retried.get( 1 ) );
+	}
+
+	@Test
+	public void testGivesUpAfterTheLastAttempt() {
+		Retry retry = new Retry( policy( 3, 1 ), metrics );
+		ConnectException last = new ConnectException( "refused" );
+		IOException e = assertThrows( IOException.class, () -> retry.call( () -> {
+			attempts.incrementAndGet();
+			throw last;
+		} ) );
+		assertEquals( last, e );
+		assertEquals( 3, attempts.get() );
+		assertEquals( 2, retried.size() );
+	}
+
+	@Test
+	public void testDoesNotRetryWhatIsNotTransient() {
+		Retry retry = new Retry( policy( 3, 1 ), metrics );
+		assertThrows( WebApplicationException.class, () -> retry.call( () -> {
+			attempts.incrementAndGet();
+			throw new WebApplicationException( 404 );
+		} ) );
+		assertThrows( JsonParseException.class, () -> retry.call( () -> {
+			attempts.incrementAndGet();
+			throw new JsonParseException( null, "bad" );
+		} ) );
+		assertEquals( 2, attempts.get() );
+		assertTrue( retried.isEmpty() );
+	}
+
+	@Test
+	public void testBackoffGrowsUpToTheMaximum() throws IOException {
+		RetryPolicy policy = policy( 4, 40 );
+		policy.setMaxBackoff( 60 );
+		Retry retry = new Retry( policy, null );
+		long start = System.nanoTime();
+		retry.call( () -> {
+			if ( attempts.incrementAndGet() < 4 ) throw new ConnectException( "refused" );
+			return null;
+		} );
+		long elapsed = ( System.nanoTime() - start ) / 1000000;
+		// 40, then 80 capped to 60, then 60
+		assertTrue( elapsed >= 160, "waited " + elapsed + " ms" );
+	}
+
+	@Test
+	public void testRetryAfterIsCappedByTheMaximum() throws IOException {
+		RetryPolicy policy = policy( 2, 1 );
+		policy.setMaxBackoff( 50 );
+		Retry retry = new Retry( policy, null );
+		long start = System.nanoTime();
+		retry.call( () -> {
+			if ( attempts.incrementAndGet() == 1 ) throw new WebApplicationException( Response.status( 429 ).header( "Retry-After", "30" ).build() );
+			return null;
+		} );
+		long elapsed = ( System.nanoTime() - start ) / 1000000;
+		assertTrue( elapsed >= 50 && elapsed < 5000, "waited " + elapsed + " ms" );
+	}
+
+	@Test
+	public void testCircuitOpensAndLetsOneProbeThrough() throws Exception {
+		RetryPolicy policy = policy( 1, 1 );
+		policy.setFailureThreshold( 2 );
+		policy.setOpenDuration( 100 );
+		Retry retry = new Retry( policy, metrics );
+		for ( int i = 0; i < 2; i++ )
+			assertThrows( ConnectException.class, () -> retry.call( this::refuse ) );
+		assertEquals( 1, opened.get() );
+
+		// open: failed without being sent
+		IOException rejected = assertThrows( IOException.class, () -> retry.call( this::refuse ) );
+		assertTrue( rejected.getMessage().startsWith( "Circuit open" ) );
+		assertEquals( 2, attempts.get() );
+
+		Thread.sleep( 150 );
+		// half open: the probe goes through, anything else during it does not
+		String probe = retry.call( () -> {
+			attempts.incrementAndGet();
+			assertThrows( IOException.class, () -> retry.call( this::refuse ) );
+			return "probe";
+		} );
+		assertEquals( "probe", probe );
+		assertEquals( 3, attempts.get() );
+
+		// closed again
+		assertThrows( ConnectException.class, () -> retry.call( this::refuse ) );
+		assertEquals( 4, attempts.get() );
+	}
+
+	@Test
+	public void testFailedProbeReopensTheCircuit() throws Exception {
+		RetryPolicy policy = policy( 1, 1 );
+		policy.setFailureThreshold( 1 );
+		policy.setOpenDuration( 100 );
+		Retry retry = new Retry( policy, metrics );
+		assertThrows( ConnectException.class, () -> retry.call( this::refuse ) );
+		Thread.sleep( 150 );
+		assertThrows( ConnectException.class, () -> retry.call( this::refuse ) );
+		assertEquals( 2, opened.get() );
+		IOException rejected = assertThrows( IOException.class, () -> retry.call( this::refuse ) );
+		assertTrue( rejected.getMessage().startsWith( "Circuit open" ) );
+		assertEquals( 2, attempts.get() );
+	}
+
+	private Object refuse() throws IOException {
+		attempts.incrementAndGet();
+		throw new ConnectException( "refused" );
+	}
+
+	private static RetryPolicy policy( int maxAttempts, long initialBackoff ) {
+		RetryPolicy policy = new RetryPolicy();
+		policy.setMaxAttempts( maxAttempts );
+		policy.setInitialBackoff( initialBackoff );
+		policy.setJitter( 0 );
+		return policy;
+	}
+}
@@ -0,0 +1,68 @@
+package org.scijava.nexus.v1.client;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent
+ */
+public class ThrottleTest {
+
+	@Test
+	public void testCapsThroughput() throws IOException {
+		Throttle throttle = new Throttle( 1_000_000 );
+		long start = System.nanoTime();
+		read( throttle.wrap( Channels.newChannel( new ByteArrayInputStream( new byte[ 300_000 ] ) ) ) );
+		long millis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+		assertTrue( millis >= 250, "took " + millis + " ms" );
+		assertTrue( millis < 2000, "took " + millis + " ms" );
+	}
+
+	@Test
+	public void testCapIsSharedByAllTransfers() throws Exception {
+		Throttle throttle = new Throttle( 1_000_000 );
+		long start = System.nanoTime();
+		Thread other = new Thread( () -> {
+			try {
+				read( throttle.wrap( Channels.newChannel( new ByteArrayInputStream( new byte[ 150_000 ] ) ) ) );
+			} catch ( IOException e ) {
+				throw new IllegalStateException( e );
+			}
+		} );
+		other.start();
+		read( throttle.wrap( Channels.newChannel( new ByteArrayInputStream( new byte[ 150_000 ] ) ) ) );
+		other.join();
+		long millis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+		assertTrue( millis >= 250, "took " + millis + " ms" );
+	}
+
+	@Test
+	public void testPassesBytesThrough() throws IOException {
+		byte[] data = new byte[ 10_000 ];
+		new Random( 1 ).nextBytes( data );
+		Throttle throttle = new Throttle( Long.MAX_VALUE );
+		assertArrayEquals( data, read( throttle.wrap( Channels.newChannel( new ByteArrayInputStream( data ) ) ) ) );
+	}
+
+	private static byte[] read( ReadableByteChannel channel ) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteBuffer buffer = ByteBuffer.allocate( 8192 );
+		while ( channel.read( buffer ) > 0 ) {
+			out.write( buffer.array(), 0, buffer.position() );
+			( ( Buffer ) buffer ).clear();
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,77 @@
+package org.scijava.nexus.v1.client.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent
+ */
+public class CompactAssetTest {
+
+	private static final String SHA1 = "00ff10a5c3e9b7d4f21086a3b5c7d9e1f2a4b6c8";
+	private static final String MD5 = "0123456789abcdeffedcba9876543210";
+
+	@Test
+	public void testChecksumsRoundTrip() {
+		CompactAsset compact = new CompactAsset.Pool().compact( asset( "a/b.jar", SHA1, MD5 ) );
+		Checksum checksum = compact.getChecksum();
+		assertEquals( SHA1, checksum.getSha1() );
+		assertEquals( MD5, checksum.getMd5() );
+		assertNull( checksum.getSha256() );
+		assertNull( checksum.getSha512() );
+	}
+
+	@Test
+	public void testChecksumsComeBackLowercase() {
+		CompactAsset compact = new CompactAsset.Pool().compact( asset( "a/b.jar", SHA1.toUpperCase(), null ) );
+		assertEquals( SHA1, compact.getChecksum().getSha1() );
+	}
+
+	@Test
+	public void testMalformedChecksumsAreDropped() {
+		CompactAsset compact = new CompactAsset.Pool().compact( asset( "a/b.jar", "abc", "zz" + MD5.substring( 2 ) ) );
+		assertNull( compact.getChecksum().getSha1() );
+		assertNull( compact.getChecksum().getMd5() );
+	}
+
+	@Test
+	public void testSharesUrlPrefixAndRestoresTheAsset() {
+		CompactAsset.Pool pool = new CompactAsset.Pool();
+		CompactAsset first = pool.compact( asset( "a/b.jar", SHA1, MD5 ) );
+		CompactAsset second = pool.compact( asset( "a/c.jar", SHA1, MD5 ) );
+		assertSame( first.getRepository(), second.getRepository() );
+		assertEquals( "http://nexus/repository/r/a/c.jar", second.getDownloadUrl() );
+
+		Asset asset = first.toAsset();
+		assertEquals( "id-a/b.jar", asset.getId() );
+		assertEquals( "a/b.jar", asset.getPath() );
+		assertEquals( "r", asset.getRepository() );
+		assertEquals( "raw", asset.getFormat() );
+		assertEquals( "http://nexus/repository/r/a/b.jar", asset.getDownloadUrl() );
+		assertEquals( SHA1, asset.getChecksum().getSha1() );
+	}
+
+	@Test
+	public void testKeepsDownloadUrlNotEndingWithThePath() {
+		Asset asset = asset( "a/b.jar", null, null );
+		asset.setDownloadUrl( "http://nexus/download?id=1" );
+		assertEquals( "http://nexus/download?id=1", new CompactAsset.Pool().compact( asset ).getDownloadUrl() );
+	}
+
+	private static Asset asset( String path, String sha1, String md5 ) {
+		Asset asset = new Asset();
+		asset.setId( "id-" + path );
+		asset.setPath( path );
+		asset.setRepository( new String( "r" ) );
+		asset.setFormat( "raw" );
+		asset.setDownloadUrl( "http://nexus/repository/r/" + path );
+		Checksum checksum = new Checksum();
+		checksum.setSha1( sha1 );
+		checksum.setMd5( md5 );
+		asset.setChecksum( checksum );
+		return asset;
+	}
+}